@@ -38,20 +38,31 @@ function Dashboard() {
   // NEW: QR Code Modal State
   const [showQr, setShowQr] = useState(null);
 
-  const fetchHistory = async () => {
+  // History is paged (newest first): the first page on load, then one more per "load more"
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+
+  const fetchHistory = async (cursor = null) => {
     try {
-      const response = await fetch(`${API_BASE_URL}/api/history`, {
+      const query = cursor ? `?limit=100&cursor=${encodeURIComponent(cursor)}` : '?limit=100';
+      const response = await fetch(`${API_BASE_URL}/api/history${query}`, {
         headers: { 'Authorization': `Bearer ${token}` }
       });
-      if (response.ok) {
-        const data = await response.json();
-        setHistory(data);
-      }
+      if (!response.ok) return;
+      const links = await response.json();
+      setHistory(prev => cursor ? [...prev, ...links] : links);
+      setNextCursor(response.headers.get('X-Next-Cursor'));
     } catch (e) {
       console.error("Failed to load history", e);
     }
   };
 
+  const loadMoreHistory = async () => {
+    setLoadingMore(true);
+    await fetchHistory(nextCursor);
+    setLoadingMore(false);
+  };
+
   useEffect(() => {
     if (token) fetchHistory();
   }, [token]);
@@ -162,7 +173,7 @@ function Dashboard() {
         
         {/* Header Stats */}
         <div className="w-full grid grid-cols-1 md:grid-cols-3 gap-4 mb-12">
-            <StatCard label="Active Links" value={history.length} icon={<Server className="w-4 h-4 text-[#ccff00]"/>} />
+            <StatCard label="Active Links" value={nextCursor ? `${history.length}+` : history.length} icon={<Server className="w-4 h-4 text-[#ccff00]"/>} />
             <StatCard label="System Status" value="ONLINE" icon={<Activity className="w-4 h-4 text-[#ccff00]"/>} />
             <StatCard label="Protocol" value="SECURE" icon={<Hash className="w-4 h-4 text-[#ccff00]"/>} />
         </div>
@@ -272,6 +283,12 @@ function Dashboard() {
             ))}
             </AnimatePresence>
             </div>
+
+            {nextCursor && (
+                <button onClick={loadMoreHistory} disabled={loadingMore} className="w-full mt-2 p-3 border border-zinc-800 bg-[#0a0a0a] hover:border-zinc-700 text-xs font-bold text-zinc-500 hover:text-[#ccff00] uppercase tracking-widest transition disabled:opacity-50">
+                    {loadingMore ? 'Loading...' : '[ Load More ]'}
+                </button>
+            )}
         </div>
 
         {/* --- QR CODE MODAL --- */}
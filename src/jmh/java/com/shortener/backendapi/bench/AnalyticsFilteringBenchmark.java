@@ -0,0 +1,94 @@
+package com.shortener.backendapi.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering GET /api/analytics/{shortCode} as the global click list grows.
+ * Plain Java collections stand in for Redis, so only the parsing and filtering is measured:
+ *   legacyScan  - parse every event in the global list and keep this link's (the old controller)
+ *   recentList  - decode only the link's capped, binary recent list (ClickStatsService.recentEvents)
+ *   aggregates  - read the pre-aggregated total (ClickStatsService.totalClicks)
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=AnalyticsFilteringBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyticsFilteringBenchmark {
+
+    private static final int LINKS = 10_000;
+    private static final int RECENT_EVENTS = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int events;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private List<String> globalList;
+    private final Map<String, List<byte[]>> recentLists = new HashMap<>();
+    private final Map<String, Long> totals = new HashMap<>();
+    private String hotCode;
+
+    @Setup
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        globalList = new ArrayList<>(events);
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < events; i++) {
+            // Skewed towards low link numbers, like real traffic
+            int link = (int) (LINKS * Math.pow(random.nextDouble(), 3));
+            String code = "code" + link;
+            ClickEvent event = new ClickEvent(code, "203.0.113." + (i & 0xFF), "Mozilla/5.0", now - i);
+
+            // The old global list held JSON maps
+            globalList.add(mapper.writeValueAsString(event));
+            List<byte[]> recent = recentLists.computeIfAbsent(code, c -> new ArrayList<>());
+            if (recent.size() < RECENT_EVENTS) {
+                recent.add(ClickEventCodec.encode(event, 1));
+            }
+            totals.merge(code, 1L, Long::sum);
+        }
+        hotCode = "code0";
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyScan() throws Exception {
+        List<Map<String, Object>> matches = new ArrayList<>();
+        for (String json : globalList) {
+            Map<String, Object> data = mapper.readValue(json, Map.class);
+            if (hotCode.equals(data.get("shortCode"))) {
+                matches.add(data);
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public List<ClickEvent> recentList() {
+        List<byte[]> recent = recentLists.getOrDefault(hotCode, List.of());
+        List<ClickEvent> decoded = new ArrayList<>(recent.size());
+        for (byte[] bytes : recent) {
+            decoded.add(ClickEventCodec.decode(bytes, id -> "Mozilla/5.0"));
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public long aggregates() {
+        return totals.getOrDefault(hotCode, 0L);
+    }
+}
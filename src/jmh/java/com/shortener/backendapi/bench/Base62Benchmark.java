@@ -0,0 +1,55 @@
+package com.shortener.backendapi.bench;
+
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base62 codec vs the StringBuilder/reverse() encoder UrlService used before.
+ * Run with -prof gc to compare allocation per operation.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="Base62Benchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base62Benchmark {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private long id;
+    private String code;
+
+    @Setup
+    public void setUp() {
+        // A realistic, current Snowflake ID
+        id = new SnowflakeIdGenerator(1).nextId();
+        code = Base62.encode(id);
+    }
+
+    @Benchmark
+    public String encode() {
+        return Base62.encode(id);
+    }
+
+    @Benchmark
+    public String legacyEncode() {
+        long value = id;
+        StringBuilder sb = new StringBuilder();
+        while (value > 0) {
+            sb.append(ALPHABET.charAt((int) (value % 62)));
+            value /= 62;
+        }
+        return sb.reverse().toString();
+    }
+
+    @Benchmark
+    public long decode() {
+        return Base62.decode(code);
+    }
+}
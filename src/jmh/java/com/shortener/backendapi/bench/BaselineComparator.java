@@ -0,0 +1,87 @@
+package com.shortener.backendapi.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against a stored baseline and fails on regressions.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.shortener.backendapi.bench.BaselineComparator \
+ *     -Djmh.args="src/jmh/baselines/main.json target/jmh-result.json 0.10"
+ *
+ * Benchmarks are matched by name, mode and parameters. Throughput is better when higher,
+ * every other mode when lower. Benchmarks present in only one file are listed, not failed.
+ */
+public class BaselineComparator {
+
+    private record Score(String mode, double score, double error, String unit) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineComparator <baseline.json> <current.json> [tolerance, default 0.10]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s  %.3f %s%n", entry.getKey(), now.score(), now.unit());
+                continue;
+            }
+
+            // > 0 means worse, whichever direction is better for this mode
+            double change = "thrpt".equals(now.mode())
+                    ? (before.score() - now.score()) / before.score()
+                    : (now.score() - before.score()) / before.score();
+            // Differences inside the combined error bars are noise, not regressions
+            boolean outsideError = Math.abs(now.score() - before.score()) > now.error() + before.error();
+            boolean regressed = change > tolerance && outsideError;
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-10s %s  %.3f -> %.3f %s (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "ok", entry.getKey(),
+                    before.score(), now.score(), now.unit(), -change * 100);
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("MISSING    %s%n", name);
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, tolerance * 100);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").properties().forEach(p -> params.put(p.getKey(), p.getValue().asText()));
+
+            String mode = result.path("mode").asText();
+            String key = result.path("benchmark").asText() + " [" + mode + "]" + (params.isEmpty() ? "" : " " + params);
+            JsonNode metric = result.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key, new Score(mode, metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,77 @@
+package com.shortener.backendapi.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of turning a click into the JSON pushed to Redis: the HashMap and fresh
+ * ObjectMapper the producer used to build for every redirect, serializing the ClickEvent
+ * record with a shared mapper, and the binary ClickEventCodec (into a reused buffer and into
+ * an exactly sized array, as the producer does).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="ClickEventSerializationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClickEventSerializationBenchmark {
+
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36";
+    // As if already interned; the dictionary lookup is an in-process cache hit in production
+    private static final int USER_AGENT_ID = 7;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ClickEvent event;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        event = new ClickEvent("2dK9x7LmQ1a", "203.0.113.42", USER_AGENT, System.currentTimeMillis());
+        encoded = ClickEventCodec.encode(event, USER_AGENT_ID);
+    }
+
+    @Benchmark
+    public String legacyMap() throws JsonProcessingException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("shortCode", event.shortCode());
+        data.put("ipAddress", event.ipAddress());
+        data.put("userAgent", event.userAgent());
+        data.put("timestamp", String.valueOf(event.timestamp()));
+        return new ObjectMapper().writeValueAsString(data);
+    }
+
+    @Benchmark
+    public String record() throws JsonProcessingException {
+        return mapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public ByteBuffer binaryIntoBuffer() {
+        buffer.clear();
+        ClickEventCodec.encode(event, USER_AGENT_ID, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return ClickEventCodec.encode(event, USER_AGENT_ID);
+    }
+
+    @Benchmark
+    public ClickEvent binaryDecode() {
+        return ClickEventCodec.decode(encoded, id -> USER_AGENT);
+    }
+}
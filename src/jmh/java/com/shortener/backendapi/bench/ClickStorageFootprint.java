@@ -0,0 +1,108 @@
+package com.shortener.backendapi.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Bytes needed to store one million synthetic clicks in each click format, plus the
+ * user agent dictionary the current format needs. Counts payload bytes only: per-entry
+ * overhead of Redis lists or ClickHouse compression come on top and affect all rows alike.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.shortener.backendapi.bench.ClickStorageFootprint
+ *     -Djmh.args="1000000 2000"     (clicks, distinct user agents)
+ */
+public class ClickStorageFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int clicks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int distinctUserAgents = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        SplittableRandom random = new SplittableRandom(18);
+        String[] userAgents = new String[distinctUserAgents];
+        for (int i = 0; i < distinctUserAgents; i++) {
+            userAgents[i] = syntheticUserAgent(random);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Integer> dictionary = new HashMap<>();
+        long legacyJson = 0;
+        long version1 = 0;
+        long version2 = 0;
+        long clickHouseBefore = 0;
+        long clickHouseAfter = 0;
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < clicks; i++) {
+            // Skewed: a few browser builds account for most traffic
+            String userAgent = userAgents[(int) (distinctUserAgents * Math.pow(random.nextDouble(), 4))];
+            String ip = random.nextInt(10) == 0
+                    ? "2001:db8:" + Integer.toHexString(random.nextInt(0x10000)) + "::" + Integer.toHexString(random.nextInt(0x10000))
+                    : random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+            ClickEvent event = new ClickEvent("2dK9x7LmQ1a", ip, userAgent, now - i);
+            int userAgentId = dictionary.computeIfAbsent(userAgent, ua -> dictionary.size() + 1);
+
+            Map<String, Object> legacy = new LinkedHashMap<>();
+            legacy.put("shortCode", event.shortCode());
+            legacy.put("ipAddress", event.ipAddress());
+            legacy.put("userAgent", event.userAgent());
+            legacy.put("timestamp", String.valueOf(event.timestamp()));
+            legacyJson += mapper.writeValueAsBytes(legacy).length;
+            version1 += version1Size(event);
+            version2 += ClickEventCodec.encodedSize(event, userAgentId);
+
+            // Uncompressed column widths: String columns pay a length byte plus content
+            int shortCodeColumn = 1 + event.shortCode().length();
+            clickHouseBefore += shortCodeColumn + 1 + ip.length() + 2 + userAgent.length() + 8;
+            clickHouseAfter += shortCodeColumn + 16 + 4 + 8;
+        }
+
+        long dictionaryBytes = 0;
+        for (String userAgent : dictionary.keySet()) {
+            // Stored twice (ua -> id and id -> ua), plus a short id
+            dictionaryBytes += 2L * (userAgent.getBytes(StandardCharsets.UTF_8).length + 8);
+        }
+
+        System.out.printf("%,d clicks, %,d distinct user agents seen%n", clicks, dictionary.size());
+        System.out.printf("Redis queue / recent lists (payload bytes)%n");
+        System.out.printf("  legacy JSON map   %,15d  (%.1f per click)%n", legacyJson, (double) legacyJson / clicks);
+        System.out.printf("  binary v1         %,15d  (%.1f per click)%n", version1, (double) version1 / clicks);
+        System.out.printf("  binary v2         %,15d  (%.1f per click)%n", version2, (double) version2 / clicks);
+        System.out.printf("  + UA dictionary   %,15d%n", dictionaryBytes);
+        System.out.printf("ClickHouse clicks rows (uncompressed column bytes)%n");
+        System.out.printf("  ua String, ip String   %,15d%n", clickHouseBefore);
+        System.out.printf("  ua_id UInt32, ip IPv6  %,15d%n", clickHouseAfter);
+    }
+
+    // Version 1 stored the IP and user agent as varint-prefixed UTF-8
+    private static long version1Size(ClickEvent event) {
+        return 1 + 8 + prefixed(event.shortCode()) + prefixed(event.ipAddress()) + prefixed(event.userAgent());
+    }
+
+    private static int prefixed(String value) {
+        int length = value.getBytes(StandardCharsets.UTF_8).length;
+        return (length + 1 < 128 ? 1 : 2) + length;
+    }
+
+    private static String syntheticUserAgent(SplittableRandom random) {
+        int major = 100 + random.nextInt(25);
+        String build = major + ".0." + random.nextInt(7000) + "." + random.nextInt(200);
+        return switch (random.nextInt(4)) {
+            case 0 -> "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/"
+                    + build + " Safari/537.36";
+            case 1 -> "Mozilla/5.0 (Linux; Android " + (10 + random.nextInt(5)) + "; Pixel " + (5 + random.nextInt(4))
+                    + ") AppleWebKit/537.36 (KHTML, like Gecko) Chrome/" + build + " Mobile Safari/537.36";
+            case 2 -> "Mozilla/5.0 (iPhone; CPU iPhone OS 17_" + random.nextInt(6)
+                    + " like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17." + random.nextInt(6)
+                    + " Mobile/15E148 Safari/604.1";
+            default -> "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/"
+                    + (15 + random.nextInt(3)) + "." + random.nextInt(6) + " Safari/605.1.15";
+        };
+    }
+}
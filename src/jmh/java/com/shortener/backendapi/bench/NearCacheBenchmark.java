@@ -0,0 +1,73 @@
+package com.shortener.backendapi.bench;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.shortener.backendapi.config.NearCacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near cache lookups under 8 threads with skewed key popularity, using the production cache
+ * configuration (size bound, per-entry expiry, stats recording).
+ *   hit           - getIfPresent on a resident code, the common redirect path
+ *   singleFlight  - the miss path: install a future, complete it, read it back
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=NearCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class NearCacheBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"100000"})
+    private long maximumSize;
+
+    private AsyncCache<String, String> cache;
+    private String[] codes;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom();
+
+        int nextSkewed() {
+            // Cubic skew: a small set of codes takes most of the traffic
+            return (int) (KEYS * Math.pow(random.nextDouble(), 3));
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        cache = new NearCacheConfig().urlNearCache(maximumSize, 600, 30, new SimpleMeterRegistry());
+        codes = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            codes[i] = "code" + i;
+            cache.put(codes[i], CompletableFuture.completedFuture("https://example.com/" + i));
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<String> hit(Cursor cursor) {
+        return cache.getIfPresent(codes[cursor.nextSkewed()]);
+    }
+
+    @Benchmark
+    public String singleFlight(Cursor cursor) {
+        String code = "cold" + cursor.random.nextInt(KEYS);
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        CompletableFuture<String> existing = cache.asMap().putIfAbsent(code, loading);
+        if (existing == null) {
+            loading.complete(NearCacheConfig.MISSING);
+            existing = loading;
+        }
+        return existing.join();
+    }
+}
@@ -0,0 +1,75 @@
+package com.shortener.backendapi.bench;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Redis step of a redirect lookup (one GET over a shared Lettuce connection, 8 threads), as the
+ * reference point for ShortCodeIndexBenchmark. Unlike the other benchmarks this one needs a real
+ * Redis, since a round trip is what it measures:
+ *
+ *   docker run --rm -p 6379:6379 redis
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="RedisLookupBenchmark -p redisUri=redis://localhost:6379"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class RedisLookupBenchmark {
+
+    private static final int KEYS = 100_000;
+
+    @Param({"redis://localhost:6379"})
+    private String redisUri;
+
+    private RedisClient client;
+    private StatefulRedisConnection<String, String> connection;
+    private RedisCommands<String, String> commands;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom();
+
+        int nextSkewed() {
+            // Cubic skew: a small set of codes takes most of the traffic
+            return (int) (KEYS * Math.pow(random.nextDouble(), 3));
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        client = RedisClient.create(redisUri);
+        connection = client.connect();
+        commands = connection.sync();
+
+        Map<String, String> batch = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            batch.put("bench:code" + i, "https://example.com/articles/" + i);
+            if (batch.size() == 1000) {
+                commands.mset(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        connection.close();
+        client.shutdown();
+    }
+
+    @Benchmark
+    public String get(Cursor cursor) {
+        return commands.get("bench:code" + cursor.nextSkewed());
+    }
+}
@@ -0,0 +1,85 @@
+package com.shortener.backendapi.bench;
+
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.ShortCodeIndex;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the local memory-mapped index (one segment, as after a full build), 8 threads.
+ *   hit   - a code the index has, with skewed popularity
+ *   miss  - a code newer than the index, the case that falls through to Postgres
+ * Compare with RedisLookupBenchmark (the Redis GET it stands in for when Redis is down) and
+ * UrlLookupBenchmark.lookupByDecodedId (the Postgres lookup it saves).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=ShortCodeIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ShortCodeIndexBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    private Path file;
+    private ShortCodeIndex index;
+    private String[] codes;
+    private String[] newerCodes;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom();
+
+        int nextSkewed(int size) {
+            // Cubic skew: a small set of codes takes most of the traffic
+            return (int) (size * Math.pow(random.nextDouble(), 3));
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        file = Files.createTempFile("short-code-index", ".idx");
+        codes = new String[rows];
+        try (ShortCodeIndex.Writer writer = ShortCodeIndex.writer(file)) {
+            for (int i = 0; i < rows; i++) {
+                long id = generator.nextId();
+                codes[i] = Base62.encode(id);
+                writer.add(id, "https://example.com/articles/" + i);
+            }
+            writer.finish(System.currentTimeMillis());
+        }
+        index = ShortCodeIndex.open(file);
+
+        newerCodes = new String[1024];
+        for (int i = 0; i < newerCodes.length; i++) {
+            newerCodes[i] = Base62.encode(generator.nextId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String hit(Cursor cursor) {
+        return index.get(Base62.decode(codes[cursor.nextSkewed(codes.length)]));
+    }
+
+    @Benchmark
+    public String miss(Cursor cursor) {
+        return index.get(Base62.decode(newerCodes[cursor.random.nextInt(newerCodes.length)]));
+    }
+}
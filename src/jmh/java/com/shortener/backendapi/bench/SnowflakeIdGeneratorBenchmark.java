@@ -0,0 +1,42 @@
+package com.shortener.backendapi.bench;
+
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CAS generator vs the old synchronized one, under 8 contending threads.
+ * Note the synchronized version spins once 4096 IDs were issued in a millisecond,
+ * while the CAS version borrows the next millisecond instead.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=SnowflakeIdGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class SnowflakeIdGeneratorBenchmark {
+
+    private final SnowflakeIdGenerator casGenerator = new SnowflakeIdGenerator(1);
+    private final LegacySnowflakeIdGenerator synchronizedGenerator = new LegacySnowflakeIdGenerator();
+
+    @Benchmark
+    public long casNextId() {
+        return casGenerator.nextId();
+    }
+
+    @Benchmark
+    public long synchronizedNextId() {
+        return synchronizedGenerator.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public long[] casNextIds100() {
+        return casGenerator.nextIds(100);
+    }
+}
@@ -0,0 +1,99 @@
+package com.shortener.backendapi.bench;
+
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-miss lookup latency: short_code index vs decoding the code to the primary key.
+ * Uses an in-memory H2 table shaped like urls, so it measures index access, not network.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=UrlLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlLookupBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    private Connection connection;
+    private PreparedStatement byShortCode;
+    private PreparedStatement byId;
+    private String[] codes;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:lookup;MODE=PostgreSQL");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE urls (id BIGINT PRIMARY KEY, short_code VARCHAR(16) NOT NULL UNIQUE, "
+                    + "long_url TEXT NOT NULL, created_at TIMESTAMP NOT NULL, user_id BIGINT)");
+        }
+
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        codes = new String[rows];
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO urls (id, short_code, long_url, created_at) VALUES (?, ?, ?, ?)")) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (int i = 0; i < rows; i++) {
+                long id = generator.nextId();
+                codes[i] = Base62.encode(id);
+                insert.setLong(1, id);
+                insert.setString(2, codes[i]);
+                insert.setString(3, "https://example.com/articles/" + i);
+                insert.setTimestamp(4, now);
+                insert.addBatch();
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+
+        byShortCode = connection.prepareStatement("SELECT long_url, short_code FROM urls WHERE short_code = ?");
+        byId = connection.prepareStatement("SELECT long_url, short_code FROM urls WHERE id = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public String lookupByShortCode() throws SQLException {
+        byShortCode.setString(1, randomCode());
+        return firstUrl(byShortCode);
+    }
+
+    @Benchmark
+    public String lookupByDecodedId() throws SQLException {
+        byId.setLong(1, Base62.decode(randomCode()));
+        return firstUrl(byId);
+    }
+
+    private String randomCode() {
+        return codes[ThreadLocalRandom.current().nextInt(codes.length)];
+    }
+
+    private static String firstUrl(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.shortener.backendapi.load;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.shortener.backendapi.BackendApiApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The real app on a random port, with stand-ins for everything it normally talks to:
+ *
+ *   Postgres    in-memory H2 in PostgreSQL mode, schema from ddl-auto
+ *   Redis       InMemoryRedis on a loopback port
+ *   ClickHouse  an empty H2 database; the stream drainer is off, so nothing is written to it
+ *   Kafka       listeners don't start
+ *
+ * Rate limiting is off so the load test measures the app rather than its throttle; pass
+ * --linklet.rate-limit.enabled=true to include it. Any other --property=value is passed through.
+ */
+final class EmbeddedApp implements Closeable {
+
+    private final InMemoryRedis redis;
+    private final Path workDirectory;
+    private final ConfigurableApplicationContext context;
+
+    EmbeddedApp(List<String> overrides) throws IOException {
+        redis = new InMemoryRedis();
+        workDirectory = Files.createTempDirectory("linklet-load");
+
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                // IGNORE_UNKNOWN_SETTINGS: the Postgres-only reWriteBatchedInserts from application.properties
+                "--spring.datasource.url=jdbc:h2:mem:linklet;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                        + "DEFAULT_NULL_ORDERING=HIGH;IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--spring.data.redis.host=127.0.0.1",
+                "--spring.data.redis.port=" + redis.port(),
+                "--spring.data.redis.password=",
+                "--spring.kafka.listener.auto-startup=false",
+                "--linklet.rate-limit.enabled=false",
+                "--linklet.analytics.stream.drainer.enabled=false",
+                "--linklet.clickhouse.url=jdbc:h2:mem:clickhouse;DB_CLOSE_DELAY=-1",
+                "--linklet.clickhouse.initialize=false",
+                "--linklet.index.directory=" + workDirectory.resolve("index"),
+                "--linklet.cache.warmup.snapshot-path=" + workDirectory.resolve("hot-set.bin"),
+                "--linklet.shorten.write-behind.directory=" + workDirectory.resolve("links")));
+        // Later arguments win, so overrides from the command line replace the defaults above
+        args.addAll(overrides);
+        context = SpringApplication.run(BackendApiApplication.class, args.toArray(String[]::new));
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    /** Empties Redis and the near cache, as after a FLUSHALL and a restart: redirects start as misses. */
+    void flushCaches() {
+        redis.flushAll();
+        context.getBeansOfType(AsyncCache.class).values().forEach(cache -> cache.synchronous().invalidateAll());
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        redis.close();
+        try (Stream<Path> files = Files.walk(workDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
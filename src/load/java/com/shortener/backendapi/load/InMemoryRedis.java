@@ -0,0 +1,620 @@
+package com.shortener.backendapi.load;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Just enough Redis, in memory, to run the app without a Redis server: strings with expiry,
+ * hashes, lists, sorted sets and the app's two Lua scripts (implemented here in Java, matched by
+ * their SHA-1 like EVALSHA would). Streams are accepted and counted but never delivered, so the
+ * ClickHouse drainer must be disabled. Speaks RESP2, so the app's Lettuce client is unchanged.
+ *
+ * One lock around all data stands in for Redis' single thread; replies are written in order, so
+ * pipelining works as it does against a real server.
+ */
+final class InMemoryRedis implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ServerSocket serverSocket;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Object> data = new HashMap<>();
+    private final Map<String, Long> expiresAt = new HashMap<>();
+    private final Map<String, Long> streamLengths = new HashMap<>();
+    private final Map<String, Function<List<byte[]>, Object>> scripts = new HashMap<>();
+    private long streamSequence;
+    private volatile boolean closed;
+
+    private record ErrorReply(String message) {
+    }
+
+    InMemoryRedis() throws IOException {
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        scripts.put(scriptSha("scripts/ua_intern.lua"), this::uaIntern);
+        scripts.put(scriptSha("scripts/token_bucket.lua"), this::tokenBucket);
+        Thread.ofPlatform().name("in-memory-redis").daemon().start(this::acceptLoop);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    void flushAll() {
+        lock.lock();
+        try {
+            data.clear();
+            expiresAt.clear();
+            streamLengths.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("in-memory redis: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket; InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                Object reply;
+                lock.lock();
+                try {
+                    reply = execute(command);
+                } catch (RuntimeException e) {
+                    reply = new ErrorReply("ERR " + e.getMessage());
+                } finally {
+                    lock.unlock();
+                }
+                writeReply(out, reply);
+                // Flush once the pipelined commands read so far are all answered
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private Object execute(List<byte[]> command) {
+        String name = string(command.get(0)).toUpperCase(Locale.ROOT);
+        List<byte[]> args = command.subList(1, command.size());
+        return switch (name) {
+            case "PING" -> args.isEmpty() ? "PONG" : args.get(0);
+            case "ECHO" -> args.get(0);
+            case "SELECT", "CLIENT", "READONLY", "QUIT" -> "OK";
+            // Not a RESP3 server: Lettuce falls back to RESP2
+            case "HELLO" -> new ErrorReply("ERR unknown command 'HELLO'");
+            case "INFO" -> bytes("# Server\r\nredis_version:7.2.0\r\nredis_mode:standalone\r\n");
+            case "TIME" -> {
+                long micros = System.currentTimeMillis() * 1000;
+                yield List.of(bytes(Long.toString(micros / 1_000_000)), bytes(Long.toString(micros % 1_000_000)));
+            }
+            case "FLUSHALL", "FLUSHDB" -> {
+                data.clear();
+                expiresAt.clear();
+                streamLengths.clear();
+                yield "OK";
+            }
+            case "DBSIZE" -> (long) data.size();
+
+            // Strings and keys
+            case "GET" -> (byte[]) live(string(args.get(0)));
+            case "SET" -> set(args);
+            case "SETEX" -> {
+                put(string(args.get(0)), args.get(2), parseLong(args.get(1)) * 1000);
+                yield "OK";
+            }
+            case "PSETEX" -> {
+                put(string(args.get(0)), args.get(2), parseLong(args.get(1)));
+                yield "OK";
+            }
+            case "MGET" -> {
+                List<Object> values = new ArrayList<>();
+                args.forEach(key -> values.add(live(string(key)) instanceof byte[] value ? value : null));
+                yield values;
+            }
+            case "MSET" -> {
+                for (int i = 0; i + 1 < args.size(); i += 2) {
+                    put(string(args.get(i)), args.get(i + 1), 0);
+                }
+                yield "OK";
+            }
+            case "DEL", "UNLINK" -> {
+                long removed = 0;
+                for (byte[] key : args) {
+                    if (live(string(key)) != null) {
+                        remove(string(key));
+                        removed++;
+                    }
+                }
+                yield removed;
+            }
+            case "EXISTS" -> args.stream().filter(key -> live(string(key)) != null).count();
+            case "EXPIRE" -> expire(string(args.get(0)), parseLong(args.get(1)) * 1000);
+            case "PEXPIRE" -> expire(string(args.get(0)), parseLong(args.get(1)));
+            case "TTL", "PTTL" -> {
+                String key = string(args.get(0));
+                if (live(key) == null) {
+                    yield -2L;
+                }
+                Long at = expiresAt.get(key);
+                if (at == null) {
+                    yield -1L;
+                }
+                long millis = at - System.currentTimeMillis();
+                yield name.equals("TTL") ? millis / 1000 : millis;
+            }
+            case "PERSIST" -> expiresAt.remove(string(args.get(0))) != null ? 1L : 0L;
+            case "INCR" -> incrBy(string(args.get(0)), 1);
+            case "INCRBY" -> incrBy(string(args.get(0)), parseLong(args.get(1)));
+            case "DECR" -> incrBy(string(args.get(0)), -1);
+
+            // Hashes
+            case "HSET" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), true);
+                long added = 0;
+                for (int i = 1; i + 1 < args.size(); i += 2) {
+                    if (hash.put(string(args.get(i)), args.get(i + 1)) == null) {
+                        added++;
+                    }
+                }
+                yield added;
+            }
+            case "HGET" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                yield hash == null ? null : hash.get(string(args.get(1)));
+            }
+            case "HMGET" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                List<Object> values = new ArrayList<>();
+                args.subList(1, args.size()).forEach(field -> values.add(hash == null ? null : hash.get(string(field))));
+                yield values;
+            }
+            case "HDEL" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                long removed = 0;
+                if (hash != null) {
+                    for (byte[] field : args.subList(1, args.size())) {
+                        if (hash.remove(string(field)) != null) {
+                            removed++;
+                        }
+                    }
+                }
+                yield removed;
+            }
+            case "HVALS" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                yield hash == null ? List.of() : new ArrayList<Object>(hash.values());
+            }
+            case "HKEYS" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                yield hash == null ? List.of() : hash.keySet().stream().map(InMemoryRedis::bytes).map(Object.class::cast).toList();
+            }
+            case "HGETALL" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                List<Object> entries = new ArrayList<>();
+                if (hash != null) {
+                    hash.forEach((field, value) -> {
+                        entries.add(bytes(field));
+                        entries.add(value);
+                    });
+                }
+                yield entries;
+            }
+            case "HLEN" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), false);
+                yield hash == null ? 0L : (long) hash.size();
+            }
+            case "HINCRBY" -> {
+                Map<String, byte[]> hash = hash(string(args.get(0)), true);
+                byte[] current = hash.get(string(args.get(1)));
+                long value = (current == null ? 0 : parseLong(current)) + parseLong(args.get(2));
+                hash.put(string(args.get(1)), bytes(Long.toString(value)));
+                yield value;
+            }
+
+            // Lists
+            case "LPUSH", "RPUSH" -> {
+                Deque<byte[]> list = list(string(args.get(0)), true);
+                for (byte[] value : args.subList(1, args.size())) {
+                    if (name.equals("LPUSH")) {
+                        list.addFirst(value);
+                    } else {
+                        list.addLast(value);
+                    }
+                }
+                yield (long) list.size();
+            }
+            case "LRANGE" -> {
+                Deque<byte[]> list = list(string(args.get(0)), false);
+                if (list == null) {
+                    yield List.of();
+                }
+                List<byte[]> items = new ArrayList<>(list);
+                int[] range = range(items.size(), parseLong(args.get(1)), parseLong(args.get(2)));
+                yield new ArrayList<Object>(items.subList(range[0], range[1]));
+            }
+            case "LTRIM" -> {
+                String key = string(args.get(0));
+                Deque<byte[]> list = list(key, false);
+                if (list != null) {
+                    List<byte[]> items = new ArrayList<>(list);
+                    int[] range = range(items.size(), parseLong(args.get(1)), parseLong(args.get(2)));
+                    list.clear();
+                    list.addAll(items.subList(range[0], range[1]));
+                    if (list.isEmpty()) {
+                        remove(key);
+                    }
+                }
+                yield "OK";
+            }
+            case "LLEN" -> {
+                Deque<byte[]> list = list(string(args.get(0)), false);
+                yield list == null ? 0L : (long) list.size();
+            }
+
+            // Sorted sets
+            case "ZINCRBY" -> {
+                Map<String, Double> zset = zset(string(args.get(0)), true);
+                yield bytes(formatScore(zset.merge(string(args.get(2)), parseDouble(args.get(1)), Double::sum)));
+            }
+            case "ZADD" -> {
+                Map<String, Double> zset = zset(string(args.get(0)), true);
+                long added = 0;
+                for (int i = 1; i + 1 < args.size(); i += 2) {
+                    if (zset.put(string(args.get(i + 1)), parseDouble(args.get(i))) == null) {
+                        added++;
+                    }
+                }
+                yield added;
+            }
+            case "ZCARD" -> {
+                Map<String, Double> zset = zset(string(args.get(0)), false);
+                yield zset == null ? 0L : (long) zset.size();
+            }
+            case "ZREVRANGE" -> {
+                Map<String, Double> zset = zset(string(args.get(0)), false);
+                if (zset == null) {
+                    yield List.of();
+                }
+                List<Map.Entry<String, Double>> sorted = new ArrayList<>(zset.entrySet());
+                sorted.sort(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<String, Double>comparingByKey().reversed()));
+                int[] range = range(sorted.size(), parseLong(args.get(1)), parseLong(args.get(2)));
+                boolean withScores = args.size() > 3 && string(args.get(3)).equalsIgnoreCase("WITHSCORES");
+                List<Object> reply = new ArrayList<>();
+                for (Map.Entry<String, Double> entry : sorted.subList(range[0], range[1])) {
+                    reply.add(bytes(entry.getKey()));
+                    if (withScores) {
+                        reply.add(bytes(formatScore(entry.getValue())));
+                    }
+                }
+                yield reply;
+            }
+
+            // Streams: counted, never delivered
+            case "XADD" -> {
+                streamLengths.merge(string(args.get(0)), 1L, Long::sum);
+                yield bytes(System.currentTimeMillis() + "-" + streamSequence++);
+            }
+            case "XLEN" -> streamLengths.getOrDefault(string(args.get(0)), 0L);
+            case "XGROUP" -> "OK";
+            case "XACK", "XTRIM", "XDEL" -> 0L;
+            case "XREADGROUP", "XREAD" -> null;
+            case "XPENDING" -> args.size() == 2 ? Arrays.asList(0L, null, null, null) : List.of();
+            case "XCLAIM" -> List.of();
+
+            // Scripts: only the app's own, by SHA-1
+            case "EVALSHA" -> {
+                Function<List<byte[]>, Object> script = scripts.get(string(args.get(0)).toLowerCase(Locale.ROOT));
+                yield script == null ? new ErrorReply("NOSCRIPT No matching script") : script.apply(args.subList(1, args.size()));
+            }
+            case "EVAL" -> {
+                Function<List<byte[]>, Object> script = scripts.get(sha1(args.get(0)));
+                yield script == null ? new ErrorReply("ERR scripting is not supported by the in-memory stand-in")
+                        : script.apply(args.subList(1, args.size()));
+            }
+            case "SCRIPT" -> string(args.get(0)).equalsIgnoreCase("LOAD") ? bytes(sha1(args.get(1))) : "OK";
+
+            default -> new ErrorReply("ERR unknown command '" + name + "'");
+        };
+    }
+
+    // scripts/ua_intern.lua: numkeys, ids hash, strings hash, sequence, user agent, max entries
+    private Object uaIntern(List<byte[]> args) {
+        String idsKey = string(args.get(1));
+        String stringsKey = string(args.get(2));
+        String sequenceKey = string(args.get(3));
+        String userAgent = string(args.get(4));
+
+        Map<String, byte[]> ids = hash(idsKey, true);
+        byte[] existing = ids.get(userAgent);
+        if (existing != null) {
+            return parseLong(existing);
+        }
+        byte[] sequence = (byte[]) live(sequenceKey);
+        if ((sequence == null ? 0 : parseLong(sequence)) >= parseLong(args.get(5))) {
+            return 0L;
+        }
+        long id = incrBy(sequenceKey, 1);
+        ids.put(userAgent, bytes(Long.toString(id)));
+        hash(stringsKey, true).put(Long.toString(id), args.get(4));
+        return id;
+    }
+
+    // scripts/token_bucket.lua: numkeys, bucket, capacity, refill per second, tokens requested, minimum grant
+    private Object tokenBucket(List<byte[]> args) {
+        String key = string(args.get(1));
+        double capacity = parseDouble(args.get(2));
+        double refillPerMs = parseDouble(args.get(3)) / 1000;
+        long requested = parseLong(args.get(4));
+        long minimum = parseLong(args.get(5));
+        long now = System.currentTimeMillis();
+
+        Map<String, byte[]> bucket = hash(key, true);
+        double tokens = bucket.containsKey("tokens") ? parseDouble(bucket.get("tokens")) : capacity;
+        long ts = bucket.containsKey("ts") ? parseLong(bucket.get("ts")) : now;
+
+        tokens = Math.min(capacity, tokens + Math.max(0, now - ts) * refillPerMs);
+        long granted = Math.min(requested, (long) Math.floor(tokens));
+        if (granted < minimum) {
+            granted = 0;
+        }
+        bucket.put("tokens", bytes(Double.toString(tokens - granted)));
+        bucket.put("ts", bytes(Long.toString(now)));
+        expire(key, (long) Math.ceil(capacity / refillPerMs) + 1000);
+        return granted;
+    }
+
+    private Object set(List<byte[]> args) {
+        String key = string(args.get(0));
+        long ttlMillis = 0;
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 2; i < args.size(); i++) {
+            switch (string(args.get(i)).toUpperCase(Locale.ROOT)) {
+                case "EX" -> ttlMillis = parseLong(args.get(++i)) * 1000;
+                case "PX" -> ttlMillis = parseLong(args.get(++i));
+                case "NX" -> nx = true;
+                case "XX" -> xx = true;
+                default -> {
+                }
+            }
+        }
+        boolean exists = live(key) != null;
+        if ((nx && exists) || (xx && !exists)) {
+            return null;
+        }
+        put(key, args.get(1), ttlMillis);
+        return "OK";
+    }
+
+    private long incrBy(String key, long delta) {
+        Object current = live(key);
+        long value = (current == null ? 0 : parseLong((byte[]) current)) + delta;
+        Long at = expiresAt.get(key);
+        data.put(key, bytes(Long.toString(value)));
+        if (at != null) {
+            expiresAt.put(key, at);
+        }
+        return value;
+    }
+
+    private long expire(String key, long ttlMillis) {
+        if (live(key) == null) {
+            return 0;
+        }
+        expiresAt.put(key, System.currentTimeMillis() + ttlMillis);
+        return 1;
+    }
+
+    private void put(String key, Object value, long ttlMillis) {
+        data.put(key, value);
+        if (ttlMillis > 0) {
+            expiresAt.put(key, System.currentTimeMillis() + ttlMillis);
+        } else {
+            expiresAt.remove(key);
+        }
+    }
+
+    private void remove(String key) {
+        data.remove(key);
+        expiresAt.remove(key);
+    }
+
+    // Expiry is lazy: a key is dropped the first time it is touched after its deadline
+    private Object live(String key) {
+        Long at = expiresAt.get(key);
+        if (at != null && at <= System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        return data.get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key, boolean create) {
+        Object value = live(key);
+        if (value == null && create) {
+            value = new LinkedHashMap<String, byte[]>();
+            data.put(key, value);
+        }
+        return (Map<String, byte[]>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Deque<byte[]> list(String key, boolean create) {
+        Object value = live(key);
+        if (value == null && create) {
+            value = new ArrayDeque<byte[]>();
+            data.put(key, value);
+        }
+        return (Deque<byte[]>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> zset(String key, boolean create) {
+        Object value = live(key);
+        if (value == null && create) {
+            value = new HashMap<String, Double>();
+            data.put(key, value);
+        }
+        return (Map<String, Double>) value;
+    }
+
+    // Redis list ranges: inclusive, negative indexes count from the end
+    private static int[] range(int size, long start, long stop) {
+        long from = start < 0 ? Math.max(0, size + start) : start;
+        long to = stop < 0 ? size + stop : Math.min(stop, size - 1);
+        if (from > to || from >= size) {
+            return new int[]{0, 0};
+        }
+        return new int[]{(int) from, (int) to + 1};
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Expected a RESP array, got '" + (char) type + "'");
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected a RESP bulk string");
+            }
+            byte[] part = in.readNBytes(Integer.parseInt(readLine(in)));
+            in.skipNBytes(2);
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static void writeReply(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof String status) {
+            writeLine(out, "+" + status);
+        } else if (reply instanceof ErrorReply error) {
+            writeLine(out, "-" + error.message());
+        } else if (reply instanceof Long number) {
+            writeLine(out, ":" + number);
+        } else if (reply instanceof byte[] bulk) {
+            writeLine(out, "$" + bulk.length);
+            out.write(bulk);
+            out.write(CRLF);
+        } else if (reply instanceof List<?> items) {
+            writeLine(out, "*" + items.size());
+            for (Object item : items) {
+                writeReply(out, item);
+            }
+        } else {
+            throw new IllegalStateException("Unsupported reply " + reply.getClass());
+        }
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+
+    private static String scriptSha(String resource) throws IOException {
+        try (InputStream in = InMemoryRedis.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Missing script " + resource);
+            }
+            return sha1(in.readAllBytes());
+        }
+    }
+
+    private static String sha1(byte[] script) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(script));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String formatScore(double score) {
+        return score == Math.rint(score) && !Double.isInfinite(score) ? Long.toString((long) score) : Double.toString(score);
+    }
+
+    // Keys and fields are binary-safe: one char per byte
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long parseLong(byte[] value) {
+        return Long.parseLong(string(value).trim());
+    }
+
+    private static double parseDouble(byte[] value) {
+        return Double.parseDouble(string(value).trim());
+    }
+}
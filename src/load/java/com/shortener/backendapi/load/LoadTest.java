@@ -0,0 +1,306 @@
+package com.shortener.backendapi.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives redirect and shorten traffic at the app and reports throughput and latency percentiles.
+ *
+ * mvn -Pload test-compile exec:exec -Dload.args="links=100000 duration=60 reads=0.95 zipf=1.0"
+ *
+ * Without target=, the app is started in-process against in-memory stand-ins (see EmbeddedApp).
+ * Redirects pick links by Zipf popularity, so the cache sees the skew real traffic has.
+ *
+ * Arguments (key=value):
+ *   target       base URL of a running app; default: start one in-process
+ *   links        links created before the run (default 10000)
+ *   duration     measured seconds (default 30), after warmup seconds (default 10)
+ *   concurrency  requests in flight (default 64)
+ *   reads        share of requests that are redirects, the rest shorten (default 0.95)
+ *   zipf         popularity skew, 0 = uniform (default 1.0)
+ *   rate         total requests per second, 0 = as fast as possible (default 0). With a rate,
+ *                latency counts from when a request was due, so a stalled server is not hidden
+ *                by the client waiting for it (coordinated omission)
+ *   cold         true: empty the in-process Redis and near cache after setup, so redirects
+ *                start as misses
+ *   auth         true: shorten as the logged-in account (the link gets an owner), not anonymously
+ *   seed         random seed (default 42)
+ *   out          write results as JMH-style JSON, for BaselineComparator
+ *
+ * Anything starting with -- is passed to the in-process app, e.g. --linklet.index.enabled=false.
+ */
+public class LoadTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int CREATE_BATCH_SIZE = 1000;
+
+    private record Operation(String name, Recorder latency, LongAdder completed, LongAdder failed) {
+
+        Operation(String name) {
+            this(name, new Recorder(3), new LongAdder(), new LongAdder());
+        }
+
+        void reset() {
+            latency.getIntervalHistogram();
+            completed.reset();
+            failed.reset();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appOverrides = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appOverrides.add(arg);
+            } else if (arg.contains("=")) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                System.err.println("Ignoring argument without key=value: " + arg);
+            }
+        }
+
+        int links = Integer.parseInt(options.getOrDefault("links", "10000"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        double reads = Double.parseDouble(options.getOrDefault("reads", "0.95"));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        boolean cold = Boolean.parseBoolean(options.getOrDefault("cold", "false"));
+        boolean auth = Boolean.parseBoolean(options.getOrDefault("auth", "false"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        EmbeddedApp app = null;
+        String target = options.get("target");
+        if (target == null) {
+            app = new EmbeddedApp(appOverrides);
+            target = app.baseUrl();
+        } else if (cold || !appOverrides.isEmpty()) {
+            System.err.println("cold= and --overrides only apply to the in-process app; ignored for " + target);
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            // 1. Create the links, then order them by popularity (shuffled, so rank isn't creation order)
+            String token = login(client, target);
+            List<String> shortCodes = createLinks(client, target, links, token);
+            Collections.shuffle(shortCodes, new Random(seed));
+            ZipfSampler popularity = new ZipfSampler(shortCodes.size(), zipf);
+            System.out.printf("%d links, top 1%% take %.1f%% of redirects%n",
+                    shortCodes.size(), popularity.share(shortCodes.size() / 100) * 100);
+            if (cold && app != null) {
+                app.flushCaches();
+            }
+
+            // 2. Run: every worker sends one request at a time, on its own schedule when a rate is set
+            Operation redirect = new Operation("redirect");
+            Operation shorten = new Operation("shorten");
+            long intervalNanos = rate > 0 ? (long) (1e9 * concurrency / rate) : 0;
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+            String base = target;
+            String authorization = auth ? "Bearer " + token : null;
+
+            try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int w = 0; w < concurrency; w++) {
+                    SplittableRandom random = new SplittableRandom(seed + w);
+                    // Spread the workers' schedules across one interval
+                    long firstDue = start + intervalNanos * w / concurrency;
+                    workers.submit(() -> {
+                        long due = firstDue;
+                        long sequence = 0;
+                        while (true) {
+                            if (intervalNanos > 0) {
+                                long wait = due - System.nanoTime();
+                                if (wait > 0) {
+                                    LockSupport.parkNanos(wait);
+                                }
+                            }
+                            long sent = intervalNanos > 0 ? due : System.nanoTime();
+                            if (sent >= end) {
+                                return;
+                            }
+                            if (random.nextDouble() < reads) {
+                                String shortCode = shortCodes.get(popularity.next(random));
+                                send(client, redirect, sent, HttpRequest.newBuilder(URI.create(base + "/" + shortCode)).GET(), 302);
+                            } else {
+                                String body = "{\"url\":\"https://example.com/load/" + random.nextLong() + "/" + sequence++ + "\"}";
+                                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + "/api/shorten"))
+                                        .header("Content-Type", "application/json")
+                                        .POST(HttpRequest.BodyPublishers.ofString(body));
+                                if (authorization != null) {
+                                    request.header("Authorization", authorization);
+                                }
+                                send(client, shorten, sent, request, 200);
+                            }
+                            due += intervalNanos;
+                        }
+                    });
+                }
+
+                // Drop what the warmup recorded once it is over
+                long untilMeasured = measureFrom - System.nanoTime();
+                if (untilMeasured > 0) {
+                    TimeUnit.NANOSECONDS.sleep(untilMeasured);
+                }
+                redirect.reset();
+                shorten.reset();
+            }
+
+            // 3. Report
+            double seconds = durationSeconds;
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("links", Integer.toString(links));
+            params.put("concurrency", Integer.toString(concurrency));
+            params.put("reads", Double.toString(reads));
+            params.put("zipf", Double.toString(zipf));
+            params.put("rate", Double.toString(rate));
+            params.put("cold", Boolean.toString(cold));
+            params.put("auth", Boolean.toString(auth));
+
+            ArrayNode results = JSON.createArrayNode();
+            System.out.printf("%n%-10s %10s %8s %10s %10s %10s %10s%n", "", "ops/s", "errors", "p50 us", "p99 us", "p99.9 us", "max us");
+            for (Operation operation : List.of(redirect, shorten)) {
+                Histogram latency = operation.latency().getIntervalHistogram();
+                long completed = operation.completed().sum();
+                if (completed == 0) {
+                    continue;
+                }
+                System.out.printf("%-10s %10.0f %8d %10d %10d %10d %10d%n", operation.name(), completed / seconds,
+                        operation.failed().sum(), latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                        latency.getValueAtPercentile(99.9), latency.getMaxValue());
+
+                String name = "load." + operation.name();
+                results.add(result(name, "thrpt", params, completed / seconds, "ops/s"));
+                results.add(result(name, "p50", params, latency.getValueAtPercentile(50), "us"));
+                results.add(result(name, "p99", params, latency.getValueAtPercentile(99), "us"));
+                results.add(result(name, "p99.9", params, latency.getValueAtPercentile(99.9), "us"));
+            }
+
+            String out = options.get("out");
+            if (out != null) {
+                JSON.writerWithDefaultPrettyPrinter().writeValue(new File(out), results);
+                System.out.println("Results written to " + out);
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+    }
+
+    // Latency counts from when the request was due (or sent, without a rate); errors are timed too
+    private static void send(HttpClient client, Operation operation, long sent, HttpRequest.Builder request, int expectedStatus) {
+        boolean ok;
+        try {
+            HttpResponse<Void> response = client.send(request.timeout(Duration.ofSeconds(10)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() == expectedStatus;
+        } catch (IOException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        operation.latency().recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent)));
+        operation.completed().increment();
+        if (!ok) {
+            operation.failed().increment();
+        }
+    }
+
+    // Creating links in batches needs an account: register a throwaway one
+    private static String login(HttpClient client, String target) throws IOException, InterruptedException {
+        String username = "load-" + System.currentTimeMillis() + "@example.com";
+        String credentials = JSON.writeValueAsString(Map.of("username", username, "password", "load-test-password"));
+        post(client, target + "/api/auth/register", credentials, null);
+        return post(client, target + "/api/auth/login", credentials, null).path("token").asText();
+    }
+
+    private static List<String> createLinks(HttpClient client, String target, int links, String token)
+            throws IOException, InterruptedException {
+        List<String> shortCodes = new ArrayList<>(links);
+        while (shortCodes.size() < links) {
+            List<String> urls = new ArrayList<>();
+            for (int i = shortCodes.size(); i < Math.min(links, shortCodes.size() + CREATE_BATCH_SIZE); i++) {
+                urls.add("https://example.com/articles/" + i);
+            }
+            JsonNode created = post(client, target + "/api/shorten/batch", JSON.writeValueAsString(Map.of("urls", urls)), token);
+            // Otherwise a broken batch endpoint would keep this loop creating links forever
+            if (created.size() != urls.size()) {
+                throw new IOException("Batch of " + urls.size() + " urls answered " + created);
+            }
+            for (JsonNode link : created) {
+                shortCodes.add(link.path("shortCode").asText());
+            }
+        }
+        return shortCodes;
+    }
+
+    private static JsonNode post(HttpClient client, String url, String body, String token) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        while (true) {
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            // Throttled (or stores busy): wait as told and try again
+            if (response.statusCode() == 429 || response.statusCode() == 503) {
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                TimeUnit.SECONDS.sleep(Math.max(1, retryAfter));
+                continue;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException(url + " answered " + response.statusCode() + ": " + response.body());
+            }
+            return JSON.readTree(response.body());
+        }
+    }
+
+    private static ObjectNode result(String benchmark, String mode, Map<String, String> params, double score, String unit) {
+        ObjectNode result = JSON.createObjectNode();
+        result.put("benchmark", benchmark);
+        result.put("mode", mode);
+        ObjectNode paramsNode = result.putObject("params");
+        params.forEach(paramsNode::put);
+        ObjectNode metric = result.putObject("primaryMetric");
+        metric.put("score", score);
+        metric.put("scoreError", 0.0);
+        metric.put("scoreUnit", unit);
+        return result;
+    }
+}
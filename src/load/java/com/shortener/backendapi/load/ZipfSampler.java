@@ -0,0 +1,43 @@
+package com.shortener.backendapi.load;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent: rank 0 is the most
+ * popular link. Exponent 0 is uniform; around 1 is typical of link traffic, where a few links
+ * take most of the clicks.
+ *
+ * The cumulative distribution is computed once (8 bytes per link), so each draw is one binary search.
+ */
+final class ZipfSampler {
+
+    private final double[] cdf;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1 || exponent < 0) {
+            throw new IllegalArgumentException("Need at least one link and a non-negative exponent");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cdf[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cdf[rank] /= sum;
+        }
+        cdf[n - 1] = 1.0;
+    }
+
+    int next(RandomGenerator random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        // Not found: insertion point, the first rank whose cumulative share exceeds the draw
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /** Share of all draws that land on the {@code top} most popular ranks. */
+    double share(int top) {
+        return top <= 0 ? 0 : cdf[Math.min(top, cdf.length) - 1];
+    }
+}
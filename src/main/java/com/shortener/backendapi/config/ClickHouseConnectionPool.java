@@ -0,0 +1,43 @@
+package com.shortener.backendapi.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Long-lived connections to ClickHouse.
+ * Deliberately not exposed as a DataSource bean, otherwise Spring Boot would stop
+ * auto-configuring the Postgres DataSource used by JPA.
+ */
+@Component
+public class ClickHouseConnectionPool {
+
+    private final HikariDataSource dataSource;
+
+    public ClickHouseConnectionPool(
+            @Value("${linklet.clickhouse.url:jdbc:clickhouse://localhost:8123/default}") String url,
+            @Value("${linklet.clickhouse.pool-size:2}") int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("clickhouse");
+        config.setJdbcUrl(url);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(1);
+        // Don't fail application startup when ClickHouse is not reachable yet
+        config.setInitializationFailTimeout(-1);
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+}
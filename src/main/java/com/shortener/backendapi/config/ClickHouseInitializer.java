@@ -0,0 +1,138 @@
+package com.shortener.backendapi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Creates the ClickHouse schema analytics writes to and reads from.
+ *
+ *   clicks       raw events, partitioned by day and sorted by (short_code, timestamp), so a link's
+ *                clicks are one contiguous range and whole days are dropped by the TTL
+ *   user_agents  dictionary ids to parsed user agents (ReplacingMergeTree, rows are re-sent freely)
+ *   clicks_by_minute / _hour / _day
+ *                per-link counts, filled by materialized views on every insert into clicks. They are
+ *                SummingMergeTree tables, so rows only collapse on merge: readers must sum(clicks).
+ *
+ * Every statement is CREATE ... IF NOT EXISTS, so existing tables (and their TTLs) are left alone;
+ * retention changes for an existing table need an ALTER TABLE ... MODIFY TTL.
+ */
+@Component
+public class ClickHouseInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickHouseInitializer.class);
+
+    @Autowired
+    private ClickHouseConnectionPool connectionPool;
+
+    // Off when linklet.clickhouse.url points at a stand-in that doesn't speak ClickHouse DDL
+    @Value("${linklet.clickhouse.initialize:true}")
+    private boolean enabled;
+
+    @Value("${linklet.clickhouse.retention.raw-days:90}")
+    private int rawRetentionDays;
+
+    @Value("${linklet.clickhouse.retention.minute-days:7}")
+    private int minuteRetentionDays;
+
+    @Value("${linklet.clickhouse.retention.hour-days:90}")
+    private int hourRetentionDays;
+
+    @Value("${linklet.clickhouse.retention.day-days:1825}")
+    private int dayRetentionDays;
+
+    private volatile boolean initialized;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        initialize();
+    }
+
+    // ClickHouse may come up after us (the pool doesn't block startup), so keep trying until it works
+    @Scheduled(fixedDelayString = "${linklet.clickhouse.initialize-retry-ms:30000}",
+               initialDelayString = "${linklet.clickhouse.initialize-retry-ms:30000}")
+    public void retry() {
+        if (!initialized) {
+            initialize();
+        }
+    }
+
+    private void initialize() {
+        if (!enabled || initialized) {
+            return;
+        }
+        try (Connection conn = connectionPool.getConnection(); Statement statement = conn.createStatement()) {
+            for (String ddl : statements()) {
+                statement.execute(ddl);
+            }
+            initialized = true;
+            log.info("ClickHouse schema is in place");
+        } catch (SQLException e) {
+            log.warn("Could not create the ClickHouse schema, will retry: {}", e.getMessage());
+        }
+    }
+
+    private List<String> statements() {
+        return List.of(
+                """
+                CREATE TABLE IF NOT EXISTS clicks (
+                    short_code String,
+                    ip IPv6,
+                    ua_id UInt32,
+                    timestamp DateTime64(3, 'UTC')
+                ) ENGINE = MergeTree
+                PARTITION BY toDate(timestamp)
+                ORDER BY (short_code, timestamp)
+                TTL toDateTime(timestamp) + INTERVAL %d DAY
+                """.formatted(rawRetentionDays),
+                """
+                CREATE TABLE IF NOT EXISTS user_agents (
+                    id UInt32,
+                    user_agent String,
+                    browser LowCardinality(String),
+                    os LowCardinality(String),
+                    device_class LowCardinality(String)
+                ) ENGINE = ReplacingMergeTree
+                ORDER BY id
+                """,
+                rollupTable("clicks_by_minute", "toDate(bucket)", minuteRetentionDays),
+                rollupView("clicks_by_minute", "toStartOfMinute(timestamp)"),
+                rollupTable("clicks_by_hour", "toYYYYMM(bucket)", hourRetentionDays),
+                rollupView("clicks_by_hour", "toStartOfHour(timestamp)"),
+                rollupTable("clicks_by_day", "toYear(bucket)", dayRetentionDays),
+                rollupView("clicks_by_day", "toStartOfDay(timestamp)"));
+    }
+
+    private static String rollupTable(String table, String partition, int retentionDays) {
+        return """
+                CREATE TABLE IF NOT EXISTS %s (
+                    short_code String,
+                    bucket DateTime('UTC'),
+                    clicks UInt64
+                ) ENGINE = SummingMergeTree(clicks)
+                PARTITION BY %s
+                ORDER BY (short_code, bucket)
+                TTL bucket + INTERVAL %d DAY
+                """.formatted(table, partition, retentionDays);
+    }
+
+    // The view only sees each inserted block, so it pre-aggregates per insert and the table sums on merge
+    private static String rollupView(String table, String bucketExpression) {
+        return """
+                CREATE MATERIALIZED VIEW IF NOT EXISTS %s_mv TO %s AS
+                SELECT short_code, toDateTime(%s, 'UTC') AS bucket, count() AS clicks
+                FROM clicks
+                GROUP BY short_code, bucket
+                """.formatted(table, table, bucketExpression);
+    }
+}
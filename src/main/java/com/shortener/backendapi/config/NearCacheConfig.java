@@ -0,0 +1,60 @@
+package com.shortener.backendapi.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM tier that sits in front of Redis for short code lookups.
+ * Short code mappings never change once issued, so entries only need a TTL to bound memory
+ * and to let negative entries (codes that did not exist yet) age out quickly.
+ */
+@Configuration
+public class NearCacheConfig {
+
+    // Value cached for short codes that exist neither in Redis nor in Postgres
+    public static final String MISSING = "";
+
+    @Bean
+    public AsyncCache<String, String> urlNearCache(
+            @Value("${linklet.cache.near.maximum-size:100000}") long maximumSize,
+            @Value("${linklet.cache.near.ttl-seconds:600}") long ttlSeconds,
+            @Value("${linklet.cache.near.negative-ttl-seconds:30}") long negativeTtlSeconds,
+            MeterRegistry meterRegistry) {
+
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+
+        AsyncCache<String, String> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(String shortCode, String longUrl, long currentTime) {
+                        return MISSING.equals(longUrl) ? negativeTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String shortCode, String longUrl, long currentTime, long currentDuration) {
+                        return expireAfterCreate(shortCode, longUrl, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String shortCode, String longUrl, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "url-near-cache");
+        return cache;
+    }
+}
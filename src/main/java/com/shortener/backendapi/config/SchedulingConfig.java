@@ -0,0 +1,10 @@
+package com.shortener.backendapi.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background refresh jobs (short code filter, ...) use @Scheduled
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,53 +1,111 @@
 package com.shortener.backendapi.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.service.ClickRollupService;
+import com.shortener.backendapi.service.ClickStatsService;
+import com.shortener.backendapi.service.HotLinksTracker;
+import com.shortener.backendapi.service.ClickStatsService.Granularity;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Collections;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/analytics")
 @CrossOrigin(origins = "http://localhost:5173") // Allows frontend access
 public class AnalyticsController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
-    private StringRedisTemplate redisTemplate;
+    private ClickStatsService clickStatsService;
 
-    // Must match the key used in AnalyticsProducer.java
-    private static final String REDIS_QUEUE_KEY = "analytics_clicks";
-    
-    private final ObjectMapper mapper = new ObjectMapper();
+    @Autowired
+    private HotLinksTracker hotLinksTracker;
 
+    @Autowired
+    private ClickRollupService clickRollupService;
+
+    // Most-clicked links over the last 1, 5 and 60 complete minutes, across all replicas
+    @GetMapping("/top")
+    public ResponseEntity<Map<String, List<HotLinksTracker.HotLink>>> getTop(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > HotLinksTracker.MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(hotLinksTracker.top(limit));
+    }
+
+    // Raw recent events for one link, newest first (what the dashboard chart is built from)
     @GetMapping("/{shortCode}")
-    public ResponseEntity<List<Map<String, Object>>> getStats(@PathVariable String shortCode) {
-        // 1. Fetch all logs from Redis
-        // (For a production app, we would use a different data structure, 
-        // but for this fix, reading the list is perfectly fine and crash-proof)
-        List<String> rawLogs = redisTemplate.opsForList().range(REDIS_QUEUE_KEY, 0, -1);
-
-        if (rawLogs == null || rawLogs.isEmpty()) {
-            return ResponseEntity.ok(Collections.emptyList());
+    public ResponseEntity<List<ClickEvent>> getStats(@PathVariable String shortCode,
+                                                     @RequestParam(defaultValue = "0") int offset,
+                                                     @RequestParam(defaultValue = "1000") int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Only this link's capped event list is read, not the global queue
+        return ResponseEntity.ok(clickStatsService.recentEvents(shortCode, offset, limit));
+    }
+
+    // Pre-aggregated totals and time buckets, e.g. ?granularity=hour&buckets=24
+    @GetMapping("/{shortCode}/summary")
+    public ResponseEntity<Map<String, Object>> getSummary(@PathVariable String shortCode,
+                                                          @RequestParam(defaultValue = "minute") String granularity,
+                                                          @RequestParam(defaultValue = "60") int buckets) {
+        Granularity resolution;
+        try {
+            resolution = Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (buckets < 1 || buckets > resolution.maxBuckets()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(Map.of(
+            "shortCode", shortCode,
+            "total", clickStatsService.totalClicks(shortCode),
+            "granularity", resolution.name().toLowerCase(),
+            "buckets", clickStatsService.buckets(shortCode, resolution, buckets)
+        ));
+    }
+
+    // Longer history from the ClickHouse rollups, e.g. ?granularity=day&from=1700000000000 (epoch millis).
+    // Defaults to the last 60 buckets.
+    @GetMapping("/{shortCode}/timeline")
+    public ResponseEntity<Map<String, Object>> getTimeline(@PathVariable String shortCode,
+                                                           @RequestParam(defaultValue = "hour") String granularity,
+                                                           @RequestParam(required = false) Long from,
+                                                           @RequestParam(required = false) Long to) {
+        Granularity resolution;
+        try {
+            resolution = Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - 60 * resolution.bucketMillis();
+
+        List<ClickStatsService.ClickBucket> buckets;
+        try {
+            buckets = clickRollupService.buckets(shortCode, resolution, start, end);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            // ClickHouse unreachable; the Redis-backed summary above still works
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
 
-        // 2. Filter logs in memory to find matches for this shortCode
-        List<Map<String, Object>> stats = rawLogs.stream()
-            .map(json -> {
-                try {
-                    // Convert JSON string back to Map
-                    return (Map<String, Object>) mapper.readValue(json, Map.class);
-                } catch (Exception e) {
-                    return null;
-                }
-            })
-            .filter(data -> data != null && shortCode.equals(data.get("shortCode")))
-            .collect(Collectors.toList());
-
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(Map.of(
+            "shortCode", shortCode,
+            "total", buckets.stream().mapToLong(ClickStatsService.ClickBucket::clicks).sum(),
+            "granularity", resolution.name().toLowerCase(),
+            "buckets", buckets
+        ));
     }
-}
\ No newline at end of file
+}
@@ -33,7 +33,7 @@ public class AuthController {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         if (passwordEncoder.matches(user.getPassword(), existingUser.getPassword())) {
-            String token = jwtUtil.generateToken(user.getUsername());
+            String token = jwtUtil.generateToken(existingUser.getUsername(), existingUser.getId());
             return ResponseEntity.ok(Map.of("token", token));
         }
         return ResponseEntity.status(401).body(Map.of("message", "Invalid credentials"));
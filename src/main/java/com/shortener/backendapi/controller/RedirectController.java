@@ -2,49 +2,108 @@ package com.shortener.backendapi.controller;
 
 import com.shortener.backendapi.service.AnalyticsProducer;
 import com.shortener.backendapi.service.UrlService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest; 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class RedirectController {
 
+    private static final Logger log = LoggerFactory.getLogger(RedirectController.class);
+
     @Autowired
     private UrlService urlService;
 
     @Autowired
     private AnalyticsProducer analyticsProducer; 
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer foundTimer;
+    private Timer notFoundTimer;
+    private Timer enqueueTimer;
+    private Counter enqueueFailed;
+    // Not tagged per short code: that is a time series per link. HotLinksTracker has the top links.
+    private Counter clicks;
+
+    @PostConstruct
+    void init() {
+        foundTimer = redirectTimer("found");
+        notFoundTimer = redirectTimer("not-found");
+        enqueueTimer = Timer.builder("linklet.redirect.stage")
+                .description("Time spent in one stage of a redirect lookup")
+                .tag("stage", "analytics-enqueue")
+                .register(meterRegistry);
+        enqueueFailed = Counter.builder("linklet.redirect.analytics.failed")
+                .description("Redirects whose click event could not be recorded")
+                .register(meterRegistry);
+        clicks = Counter.builder("linklet.redirect.clicks")
+                .description("Redirects whose click event was handed to analytics")
+                .register(meterRegistry);
+    }
+
+    private Timer redirectTimer(String outcome) {
+        return Timer.builder("linklet.redirect")
+                .description("Total time to resolve and answer a redirect")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     // GET http://localhost:8081/{shortCode}
     @GetMapping("/{shortCode}")
     public ResponseEntity<Void> redirect(@PathVariable String shortCode, HttpServletRequest request) {
+        long start = System.nanoTime();
         
         // 1. Get the original URL (Checks Redis first, then DB)
         String longUrl = urlService.getOriginalUrl(shortCode);
 
         if (longUrl == null) {
+            notFoundTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             return ResponseEntity.notFound().build();
         }
 
-       
-        
-         String ipAddress = request.getRemoteAddr();
+        // 2. Record the click; analytics must never break the redirect
+        String ipAddress = request.getRemoteAddr();
         String userAgent = request.getHeader("User-Agent");
+        long enqueueStart = System.nanoTime();
         try {
-             analyticsProducer.sendClickEvent(shortCode, ipAddress, userAgent);
-        } catch (Exception e) {
-             System.out.println("Analytics failed (Kafka missing), but redirecting anyway.");
+            analyticsProducer.sendClickEvent(shortCode, ipAddress, userAgent);
+            clicks.increment();
+        } catch (RuntimeException e) {
+            enqueueFailed.increment();
+            log.debug("Analytics failed, redirecting anyway", e);
         }
-        
+        enqueueTimer.record(System.nanoTime() - enqueueStart, TimeUnit.NANOSECONDS);
 
         // 3. Redirect the User (302 Found)
+        foundTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         return ResponseEntity.status(HttpStatus.FOUND)
                 .location(URI.create(longUrl))
                 .build();
     }
-}
\ No newline at end of file
+
+    // Backing stores are saturated or down (and the local index doesn't have the code yet):
+    // ask the client to retry rather than failing with a 500
+    @ExceptionHandler({TransientDataAccessException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Void> storesBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .build();
+    }
+}
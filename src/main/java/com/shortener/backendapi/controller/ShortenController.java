@@ -1,20 +1,32 @@
 package com.shortener.backendapi.controller;
 
-import com.shortener.backendapi.model.Url;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shortener.backendapi.model.User;
 import com.shortener.backendapi.repository.UrlRepository;
+import com.shortener.backendapi.repository.UrlSummary;
 import com.shortener.backendapi.repository.UserRepository;
+import com.shortener.backendapi.security.RateLimitFilter;
+import com.shortener.backendapi.service.ClickStatsService;
 import com.shortener.backendapi.service.UrlService;
+import com.shortener.backendapi.util.Base62;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -24,6 +36,15 @@ public class ShortenController {
     @Autowired private UrlService urlService;
     @Autowired private UrlRepository urlRepository; // Direct access for simplicity
     @Autowired private UserRepository userRepository;
+    @Autowired private ClickStatsService clickStatsService;
+    @Autowired private RateLimitFilter rateLimitFilter;
+
+    private static final int MAX_HISTORY_PAGE = 500;
+
+    @Value("${linklet.shorten.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     // POST: Create Link (Now with User ID support)
     @PostMapping("/shorten")
@@ -33,24 +54,8 @@ public class ShortenController {
             return ResponseEntity.badRequest().body(Map.of("error", "URL is required"));
         }
 
-        // 1. Create the link logic (UrlService logic embedded here to access Entity)
-        String shortCode = urlService.shortenUrl(longUrl);
-        
-        // 2. If user is logged in, update the Entity with their ID
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) {
-            User user = userRepository.findByUsername(auth.getName()).orElse(null);
-            if (user != null) {
-                // We need to fetch the entity created by service to update the user ID
-                // (Optimized approach: In a real app, service should handle this, 
-                // but we are patching it here for quick resume integration)
-                Url urlEntity = urlRepository.findByShortCode(shortCode).orElse(null);
-                if (urlEntity != null) {
-                    urlEntity.setUserId(user.getId());
-                    urlRepository.save(urlEntity);
-                }
-            }
-        }
+        // 1. Create the link, attaching the owner (if logged in) in the same insert
+        String shortCode = urlService.shortenUrl(longUrl, currentUserId());
 
         String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
         return ResponseEntity.ok(Map.of(
@@ -59,31 +64,145 @@ public class ShortenController {
         ));
     }
 
-    // NEW: GET History
+    // POST: Create many links in one request, e.g. {"urls": ["https://a.com", "https://b.com"]}
+    // Typed as StreamingResponseBody, errors included: with ResponseEntity<?> Spring doesn't see the
+    // streaming body and serializes the lambda itself, as {}
+    @PostMapping("/shorten/batch")
+    public ResponseEntity<StreamingResponseBody> shortenBatch(@RequestBody Map<String, List<String>> request,
+                                                              HttpServletRequest httpRequest) {
+        List<String> longUrls = request.get("urls");
+        if (longUrls == null || longUrls.isEmpty()) {
+            return error("urls is required");
+        }
+        if (longUrls.size() > maxBatchSize) {
+            return error("At most " + maxBatchSize + " urls per batch");
+        }
+        for (int i = 0; i < longUrls.size(); i++) {
+            String longUrl = longUrls.get(i);
+            if (longUrl == null || longUrl.isEmpty()) {
+                return error("URL at index " + i + " is empty");
+            }
+        }
+        // One rate limit token per link, so a batch costs what the same links sent one by one would
+        if (!rateLimitFilter.tryAcquireLinks(httpRequest, longUrls.size())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", Long.toString(rateLimitFilter.batchRetryAfterSeconds(longUrls.size())))
+                    .build();
+        }
+
+        List<String> shortCodes = urlService.shortenUrls(longUrls, currentUserId());
+        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+
+        // Write results straight to the response, in request order, without building a response list
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                for (int i = 0; i < shortCodes.size(); i++) {
+                    json.writeStartObject();
+                    json.writeStringField("url", longUrls.get(i));
+                    json.writeStringField("shortCode", shortCodes.get(i));
+                    json.writeStringField("redirectUrl", baseUrl + "/" + shortCodes.get(i));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // 400 with the same {"error": ...} body as the other endpoints
+    private ResponseEntity<StreamingResponseBody> error(String message) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(objectMapper.writeValueAsBytes(Map.of("error", message))));
+    }
+
+    // NEW: GET History, newest first, one keyset page at a time.
+    // The next page's cursor is returned in the X-Next-Cursor header (absent on the last page).
     @GetMapping("/history")
-    public ResponseEntity<List<Map<String, Object>>> getHistory() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated() || auth.getName().equals("anonymousUser")) {
+    public ResponseEntity<StreamingResponseBody> getHistory(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "100") int limit,
+                                                            @RequestParam(defaultValue = "false") boolean clicks) {
+        Long userId = currentUserId();
+        if (userId == null) {
             return ResponseEntity.status(401).build();
         }
+        if (limit < 1 || limit > MAX_HISTORY_PAGE) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        User user = userRepository.findByUsername(auth.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        // 1. Fetch one page of projections (no entities), seeking past the cursor via the index
+        List<UrlSummary> page;
+        if (cursor == null) {
+            page = urlRepository.findHistory(userId, Limit.of(limit));
+        } else {
+            int separator = cursor.indexOf('-');
+            long createdMillis = separator > 0 ? Base62.decode(cursor.substring(0, separator)) : -1;
+            long lastId = separator > 0 ? Base62.decode(cursor.substring(separator + 1)) : -1;
+            if (createdMillis < 0 || lastId < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            page = urlRepository.findHistoryBefore(userId, new Timestamp(createdMillis), lastId, Limit.of(limit));
+        }
 
-        List<Url> urls = urlRepository.findByUserIdOrderByCreatedDateDesc(user.getId());
+        // 2. Optionally fetch click totals for the whole page in one batched call
+        List<Long> clickCounts = clicks
+                ? clickStatsService.totalClicks(page.stream().map(UrlSummary::getShortCode).toList())
+                : null;
 
         String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
 
-        // Convert to clean JSON
-        List<Map<String, Object>> response = urls.stream().map(url -> Map.of(
-            "id", (Object) url.getId(),
-            "original", url.getLongUrl(),
-            "shortCode", url.getShortCode(),
-            "shortUrl", "linklet.sh/" + url.getShortCode(),
-            "realUrl", baseUrl + "/" + url.getShortCode(),
-            "copied", false
-        )).collect(Collectors.toList());
-
-        return ResponseEntity.ok(response);
+        // 3. Stream the page to JSON without building intermediate maps
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                for (int i = 0; i < page.size(); i++) {
+                    UrlSummary url = page.get(i);
+                    json.writeStartObject();
+                    // Snowflake IDs exceed JavaScript's safe integer range, so send them as strings
+                    json.writeStringField("id", url.getId().toString());
+                    json.writeStringField("original", url.getLongUrl());
+                    json.writeStringField("shortCode", url.getShortCode());
+                    json.writeStringField("shortUrl", "linklet.sh/" + url.getShortCode());
+                    json.writeStringField("realUrl", baseUrl + "/" + url.getShortCode());
+                    json.writeNumberField("createdAt", url.getCreatedDate().getTime());
+                    if (clickCounts != null) {
+                        json.writeNumberField("clicks", clickCounts.get(i));
+                    }
+                    json.writeBooleanField("copied", false);
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.size() == limit) {
+            UrlSummary last = page.get(page.size() - 1);
+            response.header("X-Next-Cursor",
+                    Base62.encode(last.getCreatedDate().getTime()) + "-" + Base62.encode(last.getId()));
+        }
+        return response.body(body);
+    }
+
+    // The write-behind log or Postgres is saturated: ask the client to retry rather than failing with a 500
+    @ExceptionHandler(TransientDataAccessException.class)
+    public ResponseEntity<Void> storesBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .build();
+    }
+
+    // users.id of the caller, or null when anonymous
+    private Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth.getName().equals("anonymousUser")) {
+            return null;
+        }
+        // Carried in the JWT, so no users lookup is needed
+        if (auth.getDetails() instanceof Long userId) {
+            return userId;
+        }
+        // Tokens issued before the uid claim existed (they expire within 10 hours)
+        return userRepository.findByUsername(auth.getName()).map(User::getId).orElse(null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.shortener.backendapi.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+// A single redirect. On the Redis queue and the Kafka topic it travels as ClickEventCodec bytes.
+public record ClickEvent(
+        String shortCode,
+        String ipAddress,
+        String userAgent,
+        // Serialized as a string to keep the JSON format the dashboard already reads
+        @JsonFormat(shape = JsonFormat.Shape.STRING) long timestamp) {
+}
@@ -1,16 +1,24 @@
 package com.shortener.backendapi.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 import java.sql.Timestamp;
 
 @Entity
-@Table(name = "urls")
+@Table(name = "urls", indexes = {
+    // Keyset pagination for /api/history
+    @Index(name = "idx_urls_user_created", columnList = "user_id, created_at, id")
+})
 @Data
-public class Url {
+public class Url implements Persistable<Long> {
 
+    // The Snowflake ID; shortCode is its Base62 encoding, so lookups can decode and hit the primary key
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable = false)
@@ -26,4 +34,22 @@ public class Url {
 
     @Column(name = "user_id")
     private Long userId; 
-}
\ No newline at end of file
+
+    // With an assigned id, save() would otherwise SELECT before every INSERT to decide persist vs merge
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private boolean newEntity = true;
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        newEntity = false;
+    }
+}
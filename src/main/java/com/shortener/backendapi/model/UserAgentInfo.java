@@ -0,0 +1,9 @@
+package com.shortener.backendapi.model;
+
+// A user agent string with the fields parsed from it once, when it is first interned
+public record UserAgentInfo(
+        String userAgent,
+        String browser,
+        String os,
+        String deviceClass) {
+}
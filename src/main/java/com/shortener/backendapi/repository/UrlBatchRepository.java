@@ -0,0 +1,48 @@
+package com.shortener.backendapi.repository;
+
+import com.shortener.backendapi.model.Url;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.util.List;
+
+// Plain JDBC batch inserts into urls, for callers that create many rows at once
+@Repository
+public class UrlBatchRepository {
+
+    private static final String INSERT =
+            "INSERT INTO urls (id, long_url, short_code, created_at, user_id) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${linklet.shorten.batch.jdbc-batch-size:1000}")
+    private int jdbcBatchSize;
+
+    /**
+     * Inserts every row in one transaction, sent as JDBC batches.
+     *
+     * @param skipExisting ignore rows whose id is already present, so replaying the same rows is harmless
+     */
+    public void insertAll(List<Url> urls, boolean skipExisting) {
+        String sql = skipExisting ? INSERT + " ON CONFLICT (id) DO NOTHING" : INSERT;
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, urls, jdbcBatchSize, (ps, url) -> {
+            ps.setLong(1, url.getId());
+            ps.setString(2, url.getLongUrl());
+            ps.setString(3, url.getShortCode());
+            ps.setTimestamp(4, url.getCreatedDate());
+            if (url.getUserId() != null) {
+                ps.setLong(5, url.getUserId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+        }));
+    }
+}
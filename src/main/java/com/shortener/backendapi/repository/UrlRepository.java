@@ -1,7 +1,11 @@
 package com.shortener.backendapi.repository;
 
 import com.shortener.backendapi.model.Url; // <--- Make sure this imports 'Url'
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,7 +14,18 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     
     // FIX: Return 'Optional<Url>'
     Optional<Url> findByShortCode(String shortCode);
-    
-    // FIX: Return 'List<Url>'
-    List<Url> findByUserIdOrderByCreatedDateDesc(Long userId);
-}
\ No newline at end of file
+
+    // History pages walk idx_urls_user_created newest first; the cursor is the last row's (createdDate, id)
+    @Query("SELECT u.id AS id, u.longUrl AS longUrl, u.shortCode AS shortCode, u.createdDate AS createdDate "
+            + "FROM Url u WHERE u.userId = :userId "
+            + "ORDER BY u.createdDate DESC, u.id DESC")
+    List<UrlSummary> findHistory(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT u.id AS id, u.longUrl AS longUrl, u.shortCode AS shortCode, u.createdDate AS createdDate "
+            + "FROM Url u WHERE u.userId = :userId AND (u.createdDate, u.id) < (:createdDate, :id) "
+            + "ORDER BY u.createdDate DESC, u.id DESC")
+    List<UrlSummary> findHistoryBefore(@Param("userId") Long userId,
+                                       @Param("createdDate") Timestamp createdDate,
+                                       @Param("id") Long id,
+                                       Limit limit);
+}
@@ -0,0 +1,11 @@
+package com.shortener.backendapi.repository;
+
+import java.sql.Timestamp;
+
+// Read-only view of a urls row for history pages, loaded without hydrating Url entities
+public interface UrlSummary {
+    Long getId();
+    String getLongUrl();
+    String getShortCode();
+    Timestamp getCreatedDate();
+}
@@ -1,5 +1,6 @@
 package com.shortener.backendapi.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,6 +21,24 @@ public class JwtFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    // The public /{shortCode} redirect never needs a user, so skip token work on the hottest route
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return isRedirectRoute(request);
+    }
+
+    // GET of a single path segment outside /api and /actuator, i.e. RedirectController's /{shortCode}
+    static boolean isRedirectRoute(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.length() > 1
+                && path.indexOf('/', 1) < 0
+                && !path.equals("/api")
+                && !path.equals("/actuator");
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
@@ -28,16 +47,19 @@ public class JwtFilter extends OncePerRequestFilter {
         
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.extractUsername(token);
+            Claims claims = jwtUtil.parseClaims(token);
+            if (claims != null) {
+                String username = claims.getSubject();
                 // Create a simple user object (Authentication)
                 UserDetails userDetails = new User(username, "", Collections.emptyList());
                 UsernamePasswordAuthenticationToken authToken = 
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                // users.id from the token, null for tokens issued before the claim existed
+                authToken.setDetails(claims.get(JwtUtil.USER_ID_CLAIM, Long.class));
                 
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.shortener.backendapi.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+// Per-route limits, applied per client IP and, when logged in, per user. Runs after JwtFilter.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${linklet.rate-limit.shorten.capacity:30}")
+    private int shortenCapacity;
+
+    @Value("${linklet.rate-limit.shorten.refill-per-second:0.5}")
+    private double shortenRefillPerSecond;
+
+    // Counted in links rather than requests, see tryAcquireLinks
+    @Value("${linklet.rate-limit.shorten-batch.capacity:10000}")
+    private int batchCapacity;
+
+    @Value("${linklet.rate-limit.shorten-batch.refill-per-second:5}")
+    private double batchRefillPerSecond;
+
+    @Value("${linklet.rate-limit.redirect.capacity:300}")
+    private int redirectCapacity;
+
+    @Value("${linklet.rate-limit.redirect.refill-per-second:20}")
+    private double redirectRefillPerSecond;
+
+    private RateLimiter.Limit shortenLimit;
+    private RateLimiter.Limit batchLimit;
+    private RateLimiter.Limit redirectLimit;
+
+    @PostConstruct
+    void init() {
+        shortenLimit = new RateLimiter.Limit("shorten", shortenCapacity, shortenRefillPerSecond);
+        batchLimit = new RateLimiter.Limit("shorten-batch", batchCapacity, batchRefillPerSecond);
+        redirectLimit = new RateLimiter.Limit("redirect", redirectCapacity, redirectRefillPerSecond);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        RateLimiter.Limit limit = enabled ? limitFor(request) : null;
+        if (limit == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!tryAcquire(request, limit, 1)) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", Long.toString(retryAfterSeconds(limit, 1)));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Charges a batch one token per link. The batch endpoint is skipped by the filter, since the
+     * link count is only known once the controller has read the body.
+     *
+     * @return true if the batch may proceed
+     */
+    public boolean tryAcquireLinks(HttpServletRequest request, int links) {
+        return !enabled || tryAcquire(request, batchLimit, links);
+    }
+
+    /** Seconds until a batch of {@code links} may be retried, for the Retry-After header. */
+    public long batchRetryAfterSeconds(int links) {
+        return retryAfterSeconds(batchLimit, links);
+    }
+
+    private boolean tryAcquire(HttpServletRequest request, RateLimiter.Limit limit, int tokens) {
+        boolean allowed = rateLimiter.tryAcquire("rl:" + limit.route() + ":ip:" + request.getRemoteAddr(), limit, tokens);
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (allowed && auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) {
+            allowed = rateLimiter.tryAcquire("rl:" + limit.route() + ":user:" + auth.getName(), limit, tokens);
+        }
+
+        if (!allowed) {
+            meterRegistry.counter("linklet.rate-limit.rejected", "route", limit.route()).increment();
+        }
+        return allowed;
+    }
+
+    private static long retryAfterSeconds(RateLimiter.Limit limit, int tokens) {
+        return (long) Math.ceil(tokens / limit.refillPerSecond());
+    }
+
+    private RateLimiter.Limit limitFor(HttpServletRequest request) {
+        if (JwtFilter.isRedirectRoute(request)) {
+            return redirectLimit;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        // Batches are charged per link by the controller
+        if ("POST".equals(request.getMethod()) && path.startsWith("/api/shorten") && !path.startsWith("/api/shorten/batch")) {
+            return shortenLimit;
+        }
+        return null;
+    }
+}
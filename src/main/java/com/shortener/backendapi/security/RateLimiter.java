@@ -0,0 +1,129 @@
+package com.shortener.backendapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Distributed token buckets in Redis with a local lease per key.
+ *
+ * Each Redis call (one atomic Lua script) takes a lease of several tokens, which this node then
+ * hands out locally. A client well under its limit therefore costs one round trip per lease rather
+ * than per request; a client near its limit only gets small or empty leases and is throttled.
+ * Leased tokens are already removed from the shared bucket, so leasing never admits more than the
+ * limit across replicas; unused leftovers simply expire with the lease, a second after its last refill.
+ * Redis never grants fewer tokens than the request being served needs, so a refused request (e.g. a
+ * batch too large for what is left) costs nothing.
+ */
+@Component
+public class RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    public record Limit(String route, int capacity, double refillPerSecond) {
+    }
+
+    private static final class Lease {
+        final AtomicInteger remaining = new AtomicInteger();
+        final ReentrantLock refillLock = new ReentrantLock();
+
+        // All or nothing: a lease holding fewer than n tokens is left as it is
+        boolean tryTake(int n) {
+            int current;
+            do {
+                current = remaining.get();
+                if (current < n) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - n));
+            return true;
+        }
+    }
+
+    private static final RedisScript<Long> TOKEN_BUCKET =
+            RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Share of a bucket's capacity one node takes per Redis call
+    @Value("${linklet.rate-limit.lease-fraction:0.1}")
+    private double leaseFraction;
+
+    private final Cache<String, Lease> leases = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            // Short-lived, so tokens parked on one node don't go unused for long; each refill re-puts the lease
+            .expireAfterWrite(Duration.ofSeconds(1))
+            .build();
+
+    /**
+     * @return true if the request identified by {@code key} may proceed under {@code limit}
+     */
+    public boolean tryAcquire(String key, Limit limit) {
+        return tryAcquire(key, limit, 1);
+    }
+
+    /**
+     * Takes {@code tokens} at once, e.g. one per link of a batch. A request for more tokens than
+     * the bucket holds when full can never succeed, so size the capacity to the largest request.
+     *
+     * @return true if the request identified by {@code key} may proceed under {@code limit}
+     */
+    public boolean tryAcquire(String key, Limit limit, int tokens) {
+        if (tokens > limit.capacity()) {
+            return false;
+        }
+        Lease lease = leases.get(key, k -> new Lease());
+        // Local fast path: no Redis round trip
+        if (lease.tryTake(tokens)) {
+            return true;
+        }
+
+        lease.refillLock.lock();
+        try {
+            // Another thread may have refilled while we waited
+            if (lease.tryTake(tokens)) {
+                return true;
+            }
+
+            int leaseSize = Math.max(tokens, (int) (limit.capacity() * leaseFraction));
+            Long granted = redisTemplate.execute(TOKEN_BUCKET, List.of(key),
+                    Integer.toString(limit.capacity()),
+                    Double.toString(limit.refillPerSecond()),
+                    Integer.toString(leaseSize),
+                    Integer.toString(tokens));
+            meterRegistry.counter("linklet.rate-limit.redis.calls", "route", limit.route()).increment();
+
+            if (granted == null || granted <= 0) {
+                return false;
+            }
+            // Take this request's tokens out of the lease, the rest are for the next ones. The lease
+            // now lives for another second from this refill (unless it was evicted meanwhile).
+            lease.remaining.addAndGet(granted.intValue());
+            leases.asMap().replace(key, lease, lease);
+            return lease.tryTake(tokens);
+        } catch (RuntimeException e) {
+            // Fail open: an unavailable limiter must not take the whole service down with it
+            log.debug("Rate limiter unavailable, allowing request: {}", e.getMessage());
+            return true;
+        } finally {
+            lease.refillLock.unlock();
+        }
+    }
+}
@@ -1,49 +1,63 @@
 package com.shortener.backendapi.service;
 
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.Timestamp;
 
 @Service
 public class AnalyticsConsumer {
 
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsConsumer.class);
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    // We use a direct connection to ClickHouse to avoid conflict with Postgres
-    private static final String DB_URL = "jdbc:clickhouse://localhost:8123/default";
-
-    @KafkaListener(topics = "link-clicks", groupId = "analytics-group")
-    public void consume(String message) {
-        try {
-            System.out.println("📥 Consumed: " + message);
-
-            // 1. Parse the JSON message
-            Map<String, Object> data = objectMapper.readValue(message, Map.class);
-            String shortCode = (String) data.get("shortCode");
-            String ip = (String) data.get("ip");
-            String ua = (String) data.get("ua");
-            long ts = ((Number) data.get("timestamp")).longValue();
-
-            // 2. Insert into ClickHouse
-            try (Connection conn = DriverManager.getConnection(DB_URL);
-                 PreparedStatement ps = conn.prepareStatement("INSERT INTO clicks (short_code, ip, ua, timestamp) VALUES (?, ?, ?, ?)")) {
-                
-                ps.setString(1, shortCode);
-                ps.setString(2, ip);
-                ps.setString(3, ua);
-                ps.setTimestamp(4, new Timestamp(ts));
-                
-                ps.executeUpdate();
-                System.out.println("✅ Saved to ClickHouse!");
-            }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    @Autowired
+    private ClickHouseSink clickHouseSink;
+
+    @Autowired
+    private UserAgentDictionary userAgentDictionary;
+
+    // Batch size and age are bounded by max-poll-records / fetch-max-wait (see application.yml)
+    @KafkaListener(topics = "link-clicks", groupId = "analytics-group", batch = "true")
+    public void consume(List<byte[]> messages, Acknowledgment ack) throws SQLException {
+        // 1. Decode the messages, skipping any that are malformed
+        List<ClickEvent> events = new ArrayList<>(messages.size());
+        for (byte[] message : messages) {
+            try {
+                events.add(ClickEventCodec.isLegacyJson(message)
+                        ? parseLegacy(message)
+                        : ClickEventCodec.decode(message, userAgentDictionary::userAgent));
+            } catch (Exception e) {
+                log.warn("Skipping malformed click message: {}", e.getMessage());
+            }
         }
+
+        // 2. Insert into ClickHouse in one batch. If this throws, the offsets stay
+        // uncommitted and the container's error handler redelivers the batch.
+        clickHouseSink.write(events);
+        ack.acknowledge();
+    }
+
+    // JSON messages still in the topic from before the binary format; both field spellings were in use
+    private ClickEvent parseLegacy(byte[] message) throws IOException {
+        Map<String, Object> data = objectMapper.readValue(message, Map.class);
+        Object timestamp = data.get("timestamp");
+        return new ClickEvent(
+                (String) data.get("shortCode"),
+                (String) data.getOrDefault("ip", data.get("ipAddress")),
+                (String) data.getOrDefault("ua", data.get("userAgent")),
+                timestamp instanceof Number number ? number.longValue() : Long.parseLong((String) timestamp));
     }
-}
\ No newline at end of file
+}
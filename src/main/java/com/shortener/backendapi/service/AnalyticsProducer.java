@@ -1,44 +1,212 @@
 package com.shortener.backendapi.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Non-blocking click event producer.
+ * Redirect threads only enqueue into a bounded buffer; a background drainer appends the
+ * events to a capped Redis stream in pipelined batches, flushing when a batch is full or the
+ * flush interval elapses. {@link AnalyticsStreamDrainer} moves them on to ClickHouse.
+ * Each flush also updates the per-shortCode aggregates kept by {@link ClickStatsService}.
+ * Events travel in the binary {@link ClickEventCodec} format.
+ */
 @Service
 public class AnalyticsProducer {
 
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsProducer.class);
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
     @Autowired
     private StringRedisTemplate redisTemplate;
 
-    // Use a simple Redis List as our "Topic"
-    private static final String REDIS_QUEUE_KEY = "analytics_clicks";
+    @Autowired
+    private ClickStatsService clickStatsService;
+
+    @Autowired
+    private UserAgentDictionary userAgentDictionary;
+
+    @Autowired
+    private HotLinksTracker hotLinksTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.analytics.buffer-capacity:65536}")
+    private int bufferCapacity;
+
+    @Value("${linklet.analytics.batch-size:500}")
+    private int batchSize;
+
+    @Value("${linklet.analytics.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    // Approximate cap (MAXLEN ~) on the stream, so Redis memory stays flat if the drainer falls behind
+    @Value("${linklet.analytics.stream.max-length:1000000}")
+    private long streamMaxLength;
+
+    @Value("${linklet.analytics.overflow-policy:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${linklet.analytics.block-timeout-ms:5}")
+    private long blockTimeoutMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private BlockingQueue<ClickEvent> buffer;
+    private Thread drainer;
+    private volatile boolean running;
+
+    private RedisStreamCommands.XAddOptions streamAddOptions;
+
+    private Counter droppedCounter;
+    private Counter flushedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        streamAddOptions = RedisStreamCommands.XAddOptions.maxlen(streamMaxLength).approximateTrimming(true);
+
+        Gauge.builder("linklet.analytics.queued", buffer, BlockingQueue::size)
+                .description("Click events waiting to be flushed to Redis")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("linklet.analytics.dropped")
+                .description("Click events rejected because the buffer was full")
+                .register(meterRegistry);
+        flushedCounter = Counter.builder("linklet.analytics.flushed")
+                .description("Click events pushed to Redis")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("linklet.analytics.flush.failed")
+                .description("Click events lost because a Redis flush failed")
+                .register(meterRegistry);
+
+        running = true;
+        Thread.Builder threadBuilder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        drainer = threadBuilder.name("analytics-drainer").start(this::drainLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // The drainer keeps flushing until the buffer is empty, then exits
+        running = false;
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
 
     public void sendClickEvent(String shortCode, String ipAddress, String userAgent) {
-        // 1. Create a simple data map
-        Map<String, String> eventData = new HashMap<>();
-        eventData.put("shortCode", shortCode);
-        eventData.put("ipAddress", ipAddress);
-        eventData.put("userAgent", userAgent);
-        eventData.put("timestamp", String.valueOf(System.currentTimeMillis()));
-
-        // 2. Convert to JSON String
-        String jsonEvent;
-        try {
-            jsonEvent = new ObjectMapper().writeValueAsString(eventData);
-        } catch (JsonProcessingException e) {
-            System.err.println("Error serializing analytics event: " + e.getMessage());
+        ClickEvent event = new ClickEvent(shortCode, ipAddress, userAgent, System.currentTimeMillis());
+
+        boolean accepted;
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = buffer.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = buffer.offer(event);
+        }
+
+        if (!accepted) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                // 1. Wait for the first event of the next batch
+                ClickEvent first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // 2. Keep collecting until the batch is full or the flush interval has passed
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    ClickEvent next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // 3. Push the whole batch in one pipelined round trip
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ClickEvent> batch) {
+        if (batch.isEmpty()) {
             return;
         }
 
-        // 3. Push to Redis (Left Push)
-        // This acts exactly like a Kafka Producer: fire and forget.
-        redisTemplate.opsForList().leftPush(REDIS_QUEUE_KEY, jsonEvent);
-        
-        System.out.println("✅ Event pushed to Redis Queue: " + shortCode);
+        // Counted in-process, so hot links are tracked even while Redis is unavailable
+        hotLinksTracker.record(batch);
+
+        byte[][] encoded = new byte[batch.size()][];
+        try {
+            // User agents are sent as dictionary ids; almost always an in-process cache hit
+            for (int i = 0; i < encoded.length; i++) {
+                ClickEvent event = batch.get(i);
+                encoded[i] = ClickEventCodec.encode(event, userAgentDictionary.idOf(event.userAgent()));
+            }
+
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStreamCommands streams = connection.streamCommands();
+                for (byte[] event : encoded) {
+                    streams.xAdd(StreamRecords.newRecord()
+                            .in(AnalyticsStreamDrainer.STREAM_KEY_BYTES)
+                            .ofMap(Map.of(AnalyticsStreamDrainer.EVENT_FIELD, event)), streamAddOptions);
+                }
+                // Per-shortCode counters ride along in the same round trip
+                clickStatsService.record(new DefaultStringRedisConnection(connection), batch, encoded);
+                return null;
+            });
+            flushedCounter.increment(encoded.length);
+        } catch (RuntimeException e) {
+            failedCounter.increment(encoded.length);
+            log.warn("Failed to flush {} analytics events to Redis: {}", encoded.length, e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,331 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves click events from the Redis stream written by AnalyticsProducer into ClickHouse.
+ *
+ * Every replica reads through the same consumer group, so each event is delivered to one of
+ * them. Entries are acknowledged only after the ClickHouse insert succeeded; failed batches
+ * stay pending and are claimed again (by any replica) once idle for claim-idle-ms. Entries that
+ * keep failing after max-deliveries attempts, or cannot be decoded, go to a dead-letter stream.
+ *
+ * The producer caps the stream with an approximate MAXLEN, so Redis memory stays flat even when
+ * ClickHouse is down for a long time; past the cap the oldest events are dropped.
+ */
+@Service
+public class AnalyticsStreamDrainer {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsStreamDrainer.class);
+
+    public static final String STREAM_KEY = "analytics:clicks";
+    public static final byte[] STREAM_KEY_BYTES = STREAM_KEY.getBytes(StandardCharsets.UTF_8);
+    // Single field per entry, holding the ClickEventCodec bytes
+    public static final byte[] EVENT_FIELD = "e".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] DEAD_LETTER_KEY = "analytics:clicks:dead".getBytes(StandardCharsets.UTF_8);
+    private static final String GROUP = "clickhouse-sink";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ClickHouseSink clickHouseSink;
+
+    @Autowired
+    private UserAgentDictionary userAgentDictionary;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.analytics.stream.drainer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${linklet.analytics.stream.drainer.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${linklet.analytics.stream.drainer.block-ms:2000}")
+    private long blockMs;
+
+    @Value("${linklet.analytics.stream.drainer.claim-idle-ms:60000}")
+    private long claimIdleMs;
+
+    @Value("${linklet.analytics.stream.drainer.max-deliveries:5}")
+    private int maxDeliveries;
+
+    @Value("${linklet.analytics.stream.drainer.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${linklet.analytics.stream.dead-letter-max-length:100000}")
+    private long deadLetterMaxLength;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final AtomicLong streamLength = new AtomicLong();
+    private final AtomicLong pendingEntries = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private Counter drainedCounter;
+    private Counter failedCounter;
+    private Counter deadLetterCounter;
+
+    private String consumerName;
+    private Thread drainer;
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (!enabled) {
+            return;
+        }
+
+        Gauge.builder("linklet.analytics.stream.length", streamLength, AtomicLong::get)
+                .description("Entries in the click stream, acknowledged or not")
+                .register(meterRegistry);
+        Gauge.builder("linklet.analytics.stream.pending", pendingEntries, AtomicLong::get)
+                .description("Entries delivered to a drainer but not yet acknowledged")
+                .register(meterRegistry);
+        TimeGauge.builder("linklet.analytics.stream.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest event in the last batch read; 0 when caught up")
+                .register(meterRegistry);
+        drainedCounter = Counter.builder("linklet.analytics.stream.drained")
+                .description("Click events written to ClickHouse and acknowledged")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("linklet.analytics.stream.drain.failed")
+                .description("Click events left pending because the ClickHouse insert failed")
+                .register(meterRegistry);
+        deadLetterCounter = Counter.builder("linklet.analytics.stream.dead-lettered")
+                .description("Click events moved to the dead-letter stream")
+                .register(meterRegistry);
+
+        // Stable per replica, so a restarted replica picks up its own pending entries
+        consumerName = "drainer-" + snowflakeIdGenerator.getWorkerId();
+        running = true;
+        Thread.Builder threadBuilder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        drainer = threadBuilder.name("analytics-stream-drainer").start(this::drainLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void drainLoop() {
+        boolean groupReady = false;
+        long nextMaintenance = 0;
+
+        while (running) {
+            try {
+                if (!groupReady) {
+                    createGroup();
+                    groupReady = true;
+                }
+
+                // 1. Every so often take over entries that failed or whose consumer died
+                if (System.currentTimeMillis() >= nextMaintenance) {
+                    reclaimIdle();
+                    refreshGauges();
+                    nextMaintenance = System.currentTimeMillis() + Math.min(claimIdleMs, TimeUnit.SECONDS.toMillis(10));
+                }
+
+                // 2. Read new entries, waiting up to block-ms for some to arrive
+                List<ByteRecord> records = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                        connection.streamCommands().xReadGroup(
+                                Consumer.from(GROUP, consumerName),
+                                StreamReadOptions.empty().count(batchSize).block(Duration.ofMillis(blockMs)),
+                                StreamOffset.create(STREAM_KEY_BYTES, ReadOffset.lastConsumed())));
+                if (records == null || records.isEmpty()) {
+                    lagMillis.set(0);
+                    continue;
+                }
+                lagMillis.set(Math.max(0, System.currentTimeMillis() - records.get(0).getId().getTimestamp()));
+
+                // 3. Write them to ClickHouse and acknowledge
+                if (!process(records)) {
+                    Thread.sleep(retryBackoffMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Analytics stream drainer failed, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void createGroup() {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.streamCommands().xGroupCreate(STREAM_KEY_BYTES, GROUP, ReadOffset.from("0"), true));
+        } catch (RuntimeException e) {
+            // Another replica (or an earlier run) already created it
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return false if the ClickHouse insert failed and the entries were left pending
+     */
+    private boolean process(List<ByteRecord> records) {
+        List<ClickEvent> events = new ArrayList<>(records.size());
+        List<RecordId> ids = new ArrayList<>(records.size());
+        for (ByteRecord record : records) {
+            try {
+                events.add(ClickEventCodec.decode(payload(record), userAgentDictionary::userAgent));
+                ids.add(record.getId());
+            } catch (IllegalArgumentException e) {
+                log.warn("Dead-lettering undecodable click event {}: {}", record.getId(), e.getMessage());
+                deadLetter(List.of(record));
+            }
+        }
+        if (ids.isEmpty()) {
+            return true;
+        }
+
+        try {
+            clickHouseSink.write(events);
+        } catch (SQLException | RuntimeException e) {
+            failedCounter.increment(events.size());
+            log.warn("Failed to write {} click events to ClickHouse, will retry: {}", events.size(), e.getMessage());
+            return false;
+        }
+
+        redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.streamCommands().xAck(STREAM_KEY_BYTES, GROUP, ids.toArray(new RecordId[0])));
+        drainedCounter.increment(ids.size());
+        return true;
+    }
+
+    private void reclaimIdle() {
+        Duration minIdle = Duration.ofMillis(claimIdleMs);
+        PendingMessages pending = redisTemplate.execute((RedisCallback<PendingMessages>) connection ->
+                connection.streamCommands().xPending(STREAM_KEY_BYTES, GROUP, Range.unbounded(), (long) batchSize));
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+
+        List<RecordId> idle = new ArrayList<>();
+        Set<RecordId> exhausted = new HashSet<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0) {
+                idle.add(message.getId());
+                if (message.getTotalDeliveryCount() >= maxDeliveries) {
+                    exhausted.add(message.getId());
+                }
+            }
+        }
+        if (idle.isEmpty()) {
+            return;
+        }
+
+        List<ByteRecord> claimed = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xClaim(STREAM_KEY_BYTES, GROUP, consumerName,
+                        XClaimOptions.minIdle(minIdle).ids(idle.toArray(new RecordId[0]))));
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+
+        List<ByteRecord> retry = new ArrayList<>();
+        List<ByteRecord> dead = new ArrayList<>();
+        for (ByteRecord record : claimed) {
+            (exhausted.contains(record.getId()) ? dead : retry).add(record);
+        }
+        if (!dead.isEmpty()) {
+            log.warn("Dead-lettering {} click events after {} delivery attempts", dead.size(), maxDeliveries);
+            deadLetter(dead);
+        }
+        if (!retry.isEmpty()) {
+            process(retry);
+        }
+    }
+
+    // Copies the entries to the dead-letter stream, then acknowledges them on the main one
+    private void deadLetter(List<ByteRecord> records) {
+        RedisStreamCommands.XAddOptions options = RedisStreamCommands.XAddOptions.maxlen(deadLetterMaxLength)
+                .approximateTrimming(true);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ByteRecord record : records) {
+                connection.streamCommands().xAdd(
+                        record.withStreamKey(DEAD_LETTER_KEY).withId(RecordId.autoGenerate()), options);
+                connection.streamCommands().xAck(STREAM_KEY_BYTES, GROUP, record.getId());
+            }
+            return null;
+        });
+        deadLetterCounter.increment(records.size());
+    }
+
+    private void refreshGauges() {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.streamCommands().xLen(STREAM_KEY_BYTES);
+            connection.streamCommands().xPending(STREAM_KEY_BYTES, GROUP);
+            return null;
+        });
+        if (results.get(0) instanceof Long length) {
+            streamLength.set(length);
+        }
+        if (results.get(1) instanceof PendingMessagesSummary summary) {
+            pendingEntries.set(summary.getTotalPendingMessages());
+        }
+    }
+
+    private static byte[] payload(ByteRecord record) {
+        // Entries have a single field; byte[] keys can't be looked up by value
+        for (byte[] value : record.getValue().values()) {
+            return value;
+        }
+        throw new IllegalArgumentException("Empty stream entry");
+    }
+}
@@ -0,0 +1,135 @@
+package com.shortener.backendapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shortener.backendapi.config.ClickHouseConnectionPool;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.model.UserAgentInfo;
+import com.shortener.backendapi.util.IpAddresses;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes click events to ClickHouse as one bulk INSERT per batch.
+ * ClickHouse creates a data part per INSERT, so fewer, larger inserts keep merges cheap.
+ *
+ * Rows carry the IP as a 16-byte IPv6 value and the user agent as its UserAgentDictionary id.
+ * Each user agent's parsed fields are written once to the user_agents table (a
+ * ReplacingMergeTree, so repeats from other replicas or restarts collapse).
+ */
+@Service
+public class ClickHouseSink {
+
+    private static final String INSERT_SQL = "INSERT INTO clicks (short_code, ip, ua_id, timestamp) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_USER_AGENT_SQL =
+            "INSERT INTO user_agents (id, user_agent, browser, os, device_class) VALUES (?, ?, ?, ?, ?)";
+
+    private final ClickHouseConnectionPool connectionPool;
+    private final UserAgentDictionary userAgentDictionary;
+    private final MeterRegistry meterRegistry;
+    private final Counter rowsCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    // User agent ids this node has already written to user_agents
+    private final Cache<Integer, Boolean> exportedUserAgents = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    @Autowired
+    public ClickHouseSink(ClickHouseConnectionPool connectionPool, UserAgentDictionary userAgentDictionary,
+                          MeterRegistry meterRegistry) {
+        this.connectionPool = connectionPool;
+        this.userAgentDictionary = userAgentDictionary;
+        this.meterRegistry = meterRegistry;
+        this.rowsCounter = Counter.builder("linklet.clickhouse.rows")
+                .description("Click rows written to ClickHouse")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("linklet.clickhouse.batch.size")
+                .description("Rows per ClickHouse insert")
+                .register(meterRegistry);
+    }
+
+    public void write(List<ClickEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try (Connection conn = connectionPool.getConnection()) {
+            // 1. Resolve user agent ids, noting the ones user_agents may not have yet
+            int[] userAgentIds = new int[events.size()];
+            Map<Integer, UserAgentInfo> newUserAgents = new LinkedHashMap<>();
+            for (int i = 0; i < userAgentIds.length; i++) {
+                int id = userAgentDictionary.idOf(events.get(i).userAgent());
+                userAgentIds[i] = id;
+                if (id != 0 && exportedUserAgents.getIfPresent(id) == null && !newUserAgents.containsKey(id)) {
+                    UserAgentInfo info = userAgentDictionary.info(id);
+                    if (info != null) {
+                        newUserAgents.put(id, info);
+                    }
+                }
+            }
+
+            // 2. Write those before the clicks that reference them
+            if (!newUserAgents.isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_USER_AGENT_SQL)) {
+                    for (Map.Entry<Integer, UserAgentInfo> entry : newUserAgents.entrySet()) {
+                        UserAgentInfo info = entry.getValue();
+                        ps.setLong(1, entry.getKey());
+                        ps.setString(2, info.userAgent());
+                        ps.setString(3, info.browser());
+                        ps.setString(4, info.os());
+                        ps.setString(5, info.deviceClass());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+
+            // 3. The clicks themselves
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < userAgentIds.length; i++) {
+                    ClickEvent event = events.get(i);
+                    ps.setString(1, event.shortCode());
+                    ps.setString(2, toIpv6(event.ipAddress()));
+                    ps.setLong(3, userAgentIds[i]);
+                    ps.setTimestamp(4, new Timestamp(event.timestamp()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            newUserAgents.keySet().forEach(id -> exportedUserAgents.put(id, Boolean.TRUE));
+
+            outcome = "success";
+            rowsCounter.increment(events.size());
+            batchSizeSummary.record(events.size());
+        } finally {
+            sample.stop(Timer.builder("linklet.clickhouse.flush")
+                    .description("Latency of one batched ClickHouse insert")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    // The ip column is IPv6; IPv4 clients are stored IPv4-mapped, unknown ones as ::
+    private static String toIpv6(String ip) {
+        return switch (IpAddresses.packedLength(ip)) {
+            case 4 -> "::ffff:" + ip;
+            case 16 -> ip;
+            default -> "::";
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.config.ClickHouseConnectionPool;
+import com.shortener.backendapi.service.ClickStatsService.ClickBucket;
+import com.shortener.backendapi.service.ClickStatsService.Granularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Click counts for any range the ClickHouse rollups still hold (see ClickHouseInitializer), where
+ * ClickStatsService only keeps the most recent buckets in Redis.
+ *
+ * Queries are plain SQL over (short_code, bucket, clicks), so a JDBC stand-in with the same three
+ * columns can replace ClickHouse in tests.
+ */
+@Service
+public class ClickRollupService {
+
+    // Bounds the rows one request can read and return
+    public static final int MAX_BUCKETS = 10_000;
+
+    private final ClickHouseConnectionPool connectionPool;
+
+    @Autowired
+    public ClickRollupService(ClickHouseConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * @return one bucket per granularity step from the bucket containing {@code from} up to (but not
+     *         including) {@code to}, oldest first; buckets without clicks are 0
+     */
+    public List<ClickBucket> buckets(String shortCode, Granularity granularity, long from, long to) throws SQLException {
+        long first = granularity.bucketStart(from);
+        if (to <= first || (to - first) / granularity.bucketMillis() > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Range must cover 1 to " + MAX_BUCKETS + " buckets");
+        }
+
+        // 1. Rows of one bucket may not have been merged yet, so sum them here
+        String sql = "SELECT bucket, sum(clicks) FROM " + table(granularity)
+                + " WHERE short_code = ? AND bucket >= ? AND bucket < ? GROUP BY bucket";
+        Map<Long, Long> counts = new HashMap<>();
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, shortCode);
+            ps.setTimestamp(2, new Timestamp(first));
+            ps.setTimestamp(3, new Timestamp(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getTimestamp(1).getTime(), rs.getLong(2));
+                }
+            }
+        }
+
+        // 2. Fill the gaps, so charts get an evenly spaced series
+        List<ClickBucket> buckets = new ArrayList<>();
+        for (long start = first; start < to; start += granularity.bucketMillis()) {
+            buckets.add(new ClickBucket(start, counts.getOrDefault(start, 0L)));
+        }
+        return buckets;
+    }
+
+    private static String table(Granularity granularity) {
+        return switch (granularity) {
+            case MINUTE -> "clicks_by_minute";
+            case HOUR -> "clicks_by_hour";
+            case DAY -> "clicks_by_day";
+        };
+    }
+}
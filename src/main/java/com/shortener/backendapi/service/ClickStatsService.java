@@ -0,0 +1,233 @@
+package com.shortener.backendapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.ClickEventCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental per-shortCode click aggregates kept in Redis.
+ *
+ * Keys per short code:
+ *   clicks:{code}:total                  - total clicks (string counter)
+ *   clicks:{code}:{granularity}:{window} - hash of bucket start (epoch millis) to clicks
+ *   clicks:{code}:recent                 - capped list of the newest raw events (ClickEventCodec)
+ *
+ * Bucket hashes are split into fixed windows (an hour of minutes, a day of hours, 30 days of days)
+ * so each key can simply expire once its window has aged past the retention period. The recent list
+ * expires once its link has gone unclicked for recent-ttl-days. The total is kept for good: it is
+ * the only all-time click count the dashboard has, and one small counter per clicked
+ * link grows no faster than urls itself.
+ */
+@Service
+public class ClickStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickStatsService.class);
+
+    public enum Granularity {
+        MINUTE(60_000L, 60, 2),
+        HOUR(3_600_000L, 24, 8),
+        DAY(86_400_000L, 30, 13);
+
+        private final long bucketMillis;
+        private final int bucketsPerWindow;
+        private final int retainedWindows;
+
+        Granularity(long bucketMillis, int bucketsPerWindow, int retainedWindows) {
+            this.bucketMillis = bucketMillis;
+            this.bucketsPerWindow = bucketsPerWindow;
+            this.retainedWindows = retainedWindows;
+        }
+
+        public long bucketMillis() {
+            return bucketMillis;
+        }
+
+        long bucketStart(long timestamp) {
+            return timestamp - Math.floorMod(timestamp, bucketMillis);
+        }
+
+        long windowStart(long bucketStart) {
+            long windowMillis = bucketMillis * bucketsPerWindow;
+            return bucketStart - Math.floorMod(bucketStart, windowMillis);
+        }
+
+        long ttlSeconds() {
+            return bucketMillis * bucketsPerWindow * retainedWindows / 1000;
+        }
+
+        // Only buckets inside fully retained windows can be answered
+        public int maxBuckets() {
+            return bucketsPerWindow * (retainedWindows - 1);
+        }
+    }
+
+    public record ClickBucket(long start, long clicks) {
+    }
+
+    private record BucketKey(String shortCode, Granularity granularity, long windowStart) {
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private UserAgentDictionary userAgentDictionary;
+
+    @Value("${linklet.analytics.recent-events:1000}")
+    private int recentEvents;
+
+    @Value("${linklet.analytics.recent-ttl-days:30}")
+    private long recentTtlDays;
+
+    // Only for recent-list entries written as JSON before the binary format
+    private final ObjectMapper legacyMapper = new ObjectMapper();
+
+    /**
+     * Adds a batch of events to the aggregates. Runs inside the producer's pipeline, so the
+     * commands issued here go out in the same round trip as the queue push.
+     */
+    public void record(StringRedisConnection connection, List<ClickEvent> events, byte[][] encodedEvents) {
+        // 1. Pre-aggregate the batch so a viral link costs a few commands per flush, not one per click
+        Map<String, Long> totals = new HashMap<>();
+        Map<BucketKey, Map<String, Long>> buckets = new HashMap<>();
+        Map<String, List<byte[]>> recent = new HashMap<>();
+
+        for (int i = 0; i < events.size(); i++) {
+            ClickEvent event = events.get(i);
+            String shortCode = event.shortCode();
+
+            totals.merge(shortCode, 1L, Long::sum);
+            for (Granularity granularity : Granularity.values()) {
+                long bucketStart = granularity.bucketStart(event.timestamp());
+                BucketKey key = new BucketKey(shortCode, granularity, granularity.windowStart(bucketStart));
+                buckets.computeIfAbsent(key, k -> new HashMap<>()).merge(Long.toString(bucketStart), 1L, Long::sum);
+            }
+            recent.computeIfAbsent(shortCode, k -> new ArrayList<>()).add(encodedEvents[i]);
+        }
+
+        // 2. Apply the deltas
+        totals.forEach((shortCode, clicks) -> connection.incrBy(totalKey(shortCode), clicks));
+
+        buckets.forEach((key, fields) -> {
+            String bucketKey = bucketKey(key.shortCode(), key.granularity(), key.windowStart());
+            fields.forEach((field, clicks) -> connection.hIncrBy(bucketKey, field, clicks));
+            connection.expire(bucketKey, key.granularity().ttlSeconds());
+        });
+
+        recent.forEach((shortCode, encoded) -> {
+            String recentKey = recentKey(shortCode);
+            connection.listCommands().lPush(recentKey.getBytes(StandardCharsets.UTF_8), encoded.toArray(new byte[0][]));
+            connection.lTrim(recentKey, 0, recentEvents - 1);
+            connection.expire(recentKey, TimeUnit.DAYS.toSeconds(recentTtlDays));
+        });
+    }
+
+    public long totalClicks(String shortCode) {
+        String total = redisTemplate.opsForValue().get(totalKey(shortCode));
+        return total == null ? 0 : Long.parseLong(total);
+    }
+
+    // Totals for many links with a single MGET, in the order given
+    public List<Long> totalClicks(List<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return List.of();
+        }
+        List<String> totals = redisTemplate.opsForValue().multiGet(
+                shortCodes.stream().map(ClickStatsService::totalKey).toList());
+        List<Long> clicks = new ArrayList<>(shortCodes.size());
+        for (int i = 0; i < shortCodes.size(); i++) {
+            String total = totals == null ? null : totals.get(i);
+            clicks.add(total == null ? 0 : Long.parseLong(total));
+        }
+        return clicks;
+    }
+
+    /**
+     * Returns the last {@code count} buckets (oldest first), including the current partial one.
+     * Costs one pipelined round trip with a single HMGET per window touched.
+     */
+    public List<ClickBucket> buckets(String shortCode, Granularity granularity, int count) {
+        long current = granularity.bucketStart(System.currentTimeMillis());
+        long first = current - (count - 1) * granularity.bucketMillis;
+
+        // 1. Group the requested bucket starts by the window hash they live in
+        Map<Long, List<Long>> startsByWindow = new LinkedHashMap<>();
+        for (long start = first; start <= current; start += granularity.bucketMillis) {
+            startsByWindow.computeIfAbsent(granularity.windowStart(start), w -> new ArrayList<>()).add(start);
+        }
+
+        // 2. Fetch them all in one pipeline
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = new DefaultStringRedisConnection(connection);
+            startsByWindow.forEach((windowStart, starts) -> stringConnection.hMGet(
+                    bucketKey(shortCode, granularity, windowStart),
+                    starts.stream().map(String::valueOf).toArray(String[]::new)));
+            return null;
+        });
+
+        // 3. Zip the counts back onto the bucket starts
+        List<ClickBucket> buckets = new ArrayList<>(count);
+        int window = 0;
+        for (List<Long> starts : startsByWindow.values()) {
+            @SuppressWarnings("unchecked")
+            List<String> counts = (List<String>) results.get(window++);
+            for (int i = 0; i < starts.size(); i++) {
+                String clicks = counts == null ? null : counts.get(i);
+                buckets.add(new ClickBucket(starts.get(i), clicks == null ? 0 : Long.parseLong(clicks)));
+            }
+        }
+        return buckets;
+    }
+
+    // Newest first; the list only holds the last linklet.analytics.recent-events events
+    public List<ClickEvent> recentEvents(String shortCode, int offset, int limit) {
+        byte[] key = recentKey(shortCode).getBytes(StandardCharsets.UTF_8);
+        List<byte[]> encoded = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.listCommands().lRange(key, offset, offset + limit - 1L));
+        if (encoded == null) {
+            return List.of();
+        }
+
+        List<ClickEvent> events = new ArrayList<>(encoded.size());
+        for (byte[] bytes : encoded) {
+            try {
+                events.add(ClickEventCodec.isLegacyJson(bytes)
+                        ? legacyMapper.readValue(bytes, ClickEvent.class)
+                        : ClickEventCodec.decode(bytes, userAgentDictionary::userAgent));
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("Skipping unreadable click event for {}: {}", shortCode, e.getMessage());
+            }
+        }
+        return events;
+    }
+
+    public static String totalKey(String shortCode) {
+        return "clicks:" + shortCode + ":total";
+    }
+
+    private static String bucketKey(String shortCode, Granularity granularity, long windowStart) {
+        return "clicks:" + shortCode + ":" + granularity.name().toLowerCase() + ":" + windowStart;
+    }
+
+    private static String recentKey(String shortCode) {
+        return "clicks:" + shortCode + ":recent";
+    }
+}
@@ -0,0 +1,228 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.model.ClickEvent;
+import com.shortener.backendapi.util.SpaceSaving;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Most-clicked short codes over the last 1, 5 and 60 minutes, in bounded memory.
+ *
+ * Each replica counts its own clicks in one Space-Saving summary per minute (a ring of 61).
+ * When a minute closes, its top entries are added to a per-minute sorted set in Redis
+ * (hot:{minute}), so the windows reflect every replica's traffic. Windows are built from
+ * complete minutes only and recomputed once a minute; the codes at the top of the 5-minute
+ * window are also loaded into the near cache ahead of their next redirect.
+ */
+@Service
+public class HotLinksTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(HotLinksTracker.class);
+
+    public record HotLink(String shortCode, long clicks) {
+    }
+
+    private static final int[] WINDOW_MINUTES = {1, 5, 60};
+    private static final int SLOTS = 61;
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private UrlService urlService;
+
+    // Distinct codes tracked per minute per replica
+    @Value("${linklet.analytics.top.capacity:1000}")
+    private int capacity;
+
+    // Entries of each closed minute shared through Redis
+    @Value("${linklet.analytics.top.publish-size:200}")
+    private int publishSize;
+
+    @Value("${linklet.analytics.top.warm-size:100}")
+    private int warmSize;
+
+    // Size of the hour's hot set handed to UrlCacheWarmer
+    @Value("${linklet.analytics.top.hot-set-size:5000}")
+    private int hotSetSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final SpaceSaving[] minutes = new SpaceSaving[SLOTS];
+    private final long[] slotMinute = new long[SLOTS];
+    // Guarded by lock
+    private long lastPublishedMinute = -1;
+
+    private volatile Map<String, List<HotLink>> windows = Map.of();
+    private volatile List<String> hotSet = List.of();
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < SLOTS; i++) {
+            minutes[i] = new SpaceSaving(capacity);
+            slotMinute[i] = -1;
+        }
+    }
+
+    // Fed by AnalyticsProducer's drainer, one flushed batch at a time
+    public void record(List<ClickEvent> events) {
+        long current = System.currentTimeMillis() / MINUTE_MILLIS;
+        lock.lock();
+        try {
+            for (ClickEvent event : events) {
+                long minute = event.timestamp() / MINUTE_MILLIS;
+                if (minute > current - SLOTS + 1 && minute <= current) {
+                    slot(minute).offer(event.shortCode());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Most-clicked codes of the last hour, hottest first
+    public List<String> hotSet() {
+        return hotSet;
+    }
+
+    public Map<String, List<HotLink>> top(int limit) {
+        Map<String, List<HotLink>> result = new LinkedHashMap<>();
+        windows.forEach((window, links) -> result.put(window, links.subList(0, Math.min(limit, links.size()))));
+        return result;
+    }
+
+    // Shortly after each minute closes, add this replica's counts for it to the shared sorted set,
+    // along with any closed minute a late or skipped run left unpublished
+    @Scheduled(cron = "${linklet.analytics.top.publish-cron:2 * * * * *}")
+    void publishClosedMinute() {
+        long current = System.currentTimeMillis() / MINUTE_MILLIS;
+        Map<Long, List<SpaceSaving.Item>> unpublished = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            // Slots of older minutes may already hold newer ones
+            for (long minute = Math.max(lastPublishedMinute + 1, current - SLOTS + 2); minute < current; minute++) {
+                List<SpaceSaving.Item> items = slot(minute).top(publishSize);
+                if (!items.isEmpty()) {
+                    unpublished.put(minute, items);
+                }
+            }
+            lastPublishedMinute = Math.max(lastPublishedMinute, current - 1);
+        } finally {
+            lock.unlock();
+        }
+        if (unpublished.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = new DefaultStringRedisConnection(connection);
+                unpublished.forEach((minute, items) -> {
+                    String key = minuteKey(minute);
+                    for (SpaceSaving.Item item : items) {
+                        stringConnection.zIncrBy(key, item.count(), item.key());
+                    }
+                    stringConnection.expire(key, TimeUnit.MINUTES.toSeconds(SLOTS + 1));
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Not retried: some of the increments may already have been applied
+            log.warn("Failed to publish hot links for minutes {}: {}", unpublished.keySet(), e.getMessage());
+        }
+    }
+
+    // After every replica has published, rebuild the windows and warm the near cache
+    @Scheduled(cron = "${linklet.analytics.top.refresh-cron:10 * * * * *}")
+    void refreshWindows() {
+        long last = System.currentTimeMillis() / MINUTE_MILLIS - 1;
+        int maxWindow = WINDOW_MINUTES[WINDOW_MINUTES.length - 1];
+
+        List<Object> perMinute;
+        try {
+            perMinute = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < maxWindow; i++) {
+                    connection.zSetCommands().zRevRangeWithScores(
+                            minuteKey(last - i).getBytes(StandardCharsets.UTF_8), 0, publishSize - 1);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to read hot links from Redis: {}", e.getMessage());
+            return;
+        }
+
+        // Sum the minutes newest to oldest, snapshotting each window as its last minute is added
+        Map<String, Long> clicks = new HashMap<>();
+        Map<String, List<HotLink>> rebuilt = new LinkedHashMap<>();
+        int nextWindow = 0;
+        for (int i = 0; i < maxWindow; i++) {
+            // The template deserializes pipelined ZSET replies into typed tuples
+            @SuppressWarnings("unchecked")
+            Set<TypedTuple<String>> tuples = (Set<TypedTuple<String>>) perMinute.get(i);
+            if (tuples != null) {
+                for (TypedTuple<String> tuple : tuples) {
+                    clicks.merge(tuple.getValue(), tuple.getScore().longValue(), Long::sum);
+                }
+            }
+            if (i + 1 == WINDOW_MINUTES[nextWindow]) {
+                rebuilt.put(WINDOW_MINUTES[nextWindow] + "m", ranked(clicks, MAX_LIMIT));
+                nextWindow++;
+            }
+        }
+        windows = rebuilt;
+        hotSet = ranked(clicks, hotSetSize).stream().map(HotLink::shortCode).toList();
+
+        List<String> hot = rebuilt.getOrDefault("5m", List.of()).stream()
+                .limit(warmSize)
+                .map(HotLink::shortCode)
+                .toList();
+        try {
+            urlService.warmNearCache(hot);
+        } catch (RuntimeException e) {
+            log.debug("Near cache warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    private static List<HotLink> ranked(Map<String, Long> clicks, int limit) {
+        List<HotLink> links = new ArrayList<>(clicks.size());
+        clicks.forEach((shortCode, count) -> links.add(new HotLink(shortCode, count)));
+        links.sort((a, b) -> Long.compare(b.clicks(), a.clicks()));
+        return List.copyOf(links.subList(0, Math.min(limit, links.size())));
+    }
+
+    // Caller holds the lock. Reuses the ring slot of the minute an hour ago.
+    private SpaceSaving slot(long minute) {
+        int index = (int) Math.floorMod(minute, SLOTS);
+        if (slotMinute[index] != minute) {
+            minutes[index].clear();
+            slotMinute[index] = minute;
+        }
+        return minutes[index];
+    }
+
+    private static String minuteKey(long minute) {
+        return "hot:" + minute;
+    }
+}
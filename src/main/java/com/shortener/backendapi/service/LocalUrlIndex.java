@@ -0,0 +1,389 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.ShortCodeIndex;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Local, read-only copy of every short code mapping, memory-mapped from disk, so redirects keep
+ * working when Redis is down and Postgres is down or saturated.
+ *
+ * The index is a set of immutable {@link ShortCodeIndex} segments in one directory. The first is a
+ * full scan of urls; after that, every refresh appends a small segment with the rows created since
+ * {@code coveredUntil} (the same primary-key walk ShortCodeFilter uses), and once there are too many
+ * segments they are merged. Segments are written to a temp file and renamed into place, and the
+ * segment list is swapped in one volatile write, so readers never see a partial index.
+ *
+ * Mappings never change once issued, so anything the index has is authoritative; codes newer than
+ * the last refresh are simply not in it yet.
+ */
+@Service
+public class LocalUrlIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalUrlIndex.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Rows are visible to the scan only after commit; allow for slow transactions and clock skew
+    private static final long SAFETY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UrlWriteBehind urlWriteBehind;
+
+    @Value("${linklet.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${linklet.index.directory:${java.io.tmpdir}/linklet-index}")
+    private Path directory;
+
+    @Value("${linklet.index.max-segments:8}")
+    private int maxSegments;
+
+    // Newest first; replaced as a whole, never modified
+    private volatile List<ShortCodeIndex> segments = List.of();
+    private volatile long coveredUntil;
+    private long nextSequence;
+
+    // Held for a whole build, catch-up or merge; a scheduled refresh that finds it taken just skips its turn
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    @Autowired
+    public LocalUrlIndex(MeterRegistry meterRegistry) {
+        Gauge.builder("linklet.index.entries", this, index -> index.segments.stream().mapToLong(ShortCodeIndex::size).sum())
+                .description("Short code mappings in the local memory-mapped index")
+                .register(meterRegistry);
+        Gauge.builder("linklet.index.segments", this, index -> index.segments.size())
+                .description("Segment files making up the local index")
+                .register(meterRegistry);
+        TimeGauge.builder("linklet.index.staleness", this, TimeUnit.MILLISECONDS,
+                        index -> index.coveredUntil == 0 ? 0 : System.currentTimeMillis() - index.coveredUntil)
+                .description("Age of the newest rows guaranteed to be in the local index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the long URL for the code, or {@code null} if the index doesn't have it (yet)
+     */
+    public String get(String shortCode) {
+        List<ShortCodeIndex> current = segments;
+        if (current.isEmpty()) {
+            return null;
+        }
+        long id = Base62.decode(shortCode);
+        if (id < 0) {
+            return null;
+        }
+        for (ShortCodeIndex segment : current) {
+            String longUrl = segment.get(id);
+            if (longUrl != null) {
+                // Non-canonical spellings (e.g. leading zeros) decode to the same id but are not valid codes
+                return shortCode.equals(Base62.encode(id)) ? longUrl : null;
+            }
+        }
+        return null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            // The first build scans the whole table; redirects work without the index meanwhile
+            Thread.ofPlatform().name("url-index-init").daemon().start(this::initialize);
+        }
+    }
+
+    private void initialize() {
+        refreshLock.lock();
+        try {
+            if (coveredUntil == 0) {
+                loadOrBuild();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not build the local URL index, retrying on the next refresh: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${linklet.index.refresh-interval-ms:60000}",
+               initialDelayString = "${linklet.index.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled || !refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            if (coveredUntil == 0) {
+                // Nothing built or loaded yet, e.g. Postgres or Redis was down at startup
+                loadOrBuild();
+            } else {
+                catchUp();
+                if (segments.size() > maxSegments) {
+                    merge();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Local URL index refresh failed: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Segments left by a previous run only need catching up; otherwise (or if they can't be trusted) start over
+    private void loadOrBuild() throws IOException {
+        Files.createDirectories(directory);
+        if (loadSegments()) {
+            catchUp();
+        } else {
+            build();
+        }
+    }
+
+    // Full primary-key scan into fresh segments
+    private void build() throws IOException {
+        long scanStartedAt = urlWriteBehind.visibleUntil();
+        List<ShortCodeIndex> built = scan(0, id -> false, scanStartedAt - SAFETY_MARGIN_MILLIS);
+        swap(built, List.of());
+        coveredUntil = scanStartedAt - SAFETY_MARGIN_MILLIS;
+        log.info("Local URL index built: {} rows in {} segments", built.stream().mapToLong(ShortCodeIndex::size).sum(), built.size());
+    }
+
+    // Appends rows created since coveredUntil; rows from the overlap are already indexed and skipped
+    private void catchUp() throws IOException {
+        long scanStartedAt = urlWriteBehind.visibleUntil();
+        List<ShortCodeIndex> current = segments;
+        List<ShortCodeIndex> added = scan(SnowflakeIdGenerator.firstIdAt(coveredUntil - SAFETY_MARGIN_MILLIS),
+                id -> current.stream().anyMatch(segment -> segment.get(id) != null),
+                scanStartedAt - SAFETY_MARGIN_MILLIS);
+        swap(added, List.of());
+        coveredUntil = scanStartedAt - SAFETY_MARGIN_MILLIS;
+    }
+
+    private List<ShortCodeIndex> scan(long fromId, LongPredicate alreadyIndexed, long scanCoveredUntil) throws IOException {
+        SegmentSink sink = new SegmentSink(scanCoveredUntil);
+        try {
+            jdbcTemplate.query("SELECT id, short_code, long_url FROM urls WHERE id >= ? ORDER BY id", rs -> {
+                long id = rs.getLong(1);
+                // Legacy rows whose code isn't the id's Base62 are left to Postgres
+                if (rs.getString(2).equals(Base62.encode(id)) && !alreadyIndexed.test(id)) {
+                    sink.add(id, rs.getString(3));
+                }
+            }, fromId);
+            return sink.finish();
+        } catch (UncheckedIOException e) {
+            sink.abort();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            sink.abort();
+            throw e;
+        }
+    }
+
+    // Rewrites all segments as few, id-ordered ones; duplicates left by a crash mid-merge are dropped
+    private void merge() throws IOException {
+        List<ShortCodeIndex> inputs = segments;
+        SegmentSink sink = new SegmentSink(coveredUntil);
+        int[] positions = new int[inputs.size()];
+        List<ShortCodeIndex> merged;
+        try {
+            long lastId = Long.MIN_VALUE;
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < inputs.size(); i++) {
+                    if (positions[i] < inputs.get(i).size()
+                            && (next < 0 || inputs.get(i).idAt(positions[i]) < inputs.get(next).idAt(positions[next]))) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                long id = inputs.get(next).idAt(positions[next]);
+                if (id != lastId) {
+                    sink.add(id, inputs.get(next).urlAt(positions[next]));
+                    lastId = id;
+                }
+                positions[next]++;
+            }
+            merged = sink.finish();
+        } catch (UncheckedIOException e) {
+            sink.abort();
+            throw e.getCause();
+        } catch (IOException e) {
+            sink.abort();
+            throw e;
+        }
+
+        swap(merged, inputs);
+        log.info("Local URL index merged {} segments into {}", inputs.size(), merged.size());
+    }
+
+    // Publishes new segments (newest first) and drops replaced ones; readers holding them keep their mapping
+    private void swap(List<ShortCodeIndex> added, List<ShortCodeIndex> replaced) {
+        if (added.isEmpty() && replaced.isEmpty()) {
+            return;
+        }
+        List<ShortCodeIndex> next = new ArrayList<>(added.reversed());
+        segments.stream().filter(segment -> !replaced.contains(segment)).forEach(next::add);
+        segments = List.copyOf(next);
+
+        for (ShortCodeIndex segment : replaced) {
+            try {
+                Files.deleteIfExists(segment.path());
+            } catch (IOException e) {
+                log.warn("Could not delete replaced index segment {}: {}", segment.path(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean loadSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    // Left behind by a build that never finished
+                    Files.deleteIfExists(file);
+                } else {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(LocalUrlIndex::sequenceOf).reversed());
+
+        List<ShortCodeIndex> loaded = new ArrayList<>();
+        long loadedCoveredUntil = 0;
+        for (Path file : files) {
+            try {
+                ShortCodeIndex segment = ShortCodeIndex.open(file);
+                loaded.add(segment);
+                loadedCoveredUntil = Math.max(loadedCoveredUntil, segment.coveredUntil());
+                nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+            } catch (IllegalArgumentException e) {
+                // A segment we can't trust may hide a gap, so start over from a full build
+                log.warn("Discarding local URL index: {}", e.getMessage());
+                for (Path stale : files) {
+                    Files.deleteIfExists(stale);
+                }
+                return false;
+            }
+        }
+        if (loaded.isEmpty()) {
+            return false;
+        }
+
+        segments = List.copyOf(loaded);
+        coveredUntil = loadedCoveredUntil;
+        log.info("Local URL index loaded: {} segments from {}", loaded.size(), directory);
+        return true;
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Writes entries into as many segments as needed, each renamed into place only once complete.
+     */
+    private final class SegmentSink {
+
+        private final long sinkCoveredUntil;
+        private final List<Path> finished = new ArrayList<>();
+        private ShortCodeIndex.Writer writer;
+        private Path temp;
+
+        SegmentSink(long sinkCoveredUntil) {
+            this.sinkCoveredUntil = sinkCoveredUntil;
+        }
+
+        void add(long id, String longUrl) {
+            try {
+                if (writer == null) {
+                    open();
+                }
+                if (!writer.add(id, longUrl)) {
+                    // Segment full (2 GB), continue in a new one
+                    closeCurrent();
+                    open();
+                    writer.add(id, longUrl);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<ShortCodeIndex> finish() throws IOException {
+            if (writer != null && writer.size() > 0) {
+                closeCurrent();
+            } else if (writer != null) {
+                abortCurrent();
+            }
+
+            List<ShortCodeIndex> opened = new ArrayList<>();
+            for (Path file : finished) {
+                Path target = file.resolveSibling(file.getFileName().toString().replace(TEMP_SUFFIX, ""));
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                opened.add(ShortCodeIndex.open(target));
+            }
+            return opened;
+        }
+
+        void abort() {
+            try {
+                abortCurrent();
+                for (Path file : finished) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                log.warn("Could not clean up unfinished index segments: {}", e.getMessage());
+            }
+        }
+
+        private void open() throws IOException {
+            temp = directory.resolve(SEGMENT_PREFIX + String.format("%012d", nextSequence++) + SEGMENT_SUFFIX + TEMP_SUFFIX);
+            writer = ShortCodeIndex.writer(temp);
+        }
+
+        private void closeCurrent() throws IOException {
+            writer.finish(sinkCoveredUntil);
+            finished.add(temp);
+            writer = null;
+        }
+
+        private void abortCurrent() throws IOException {
+            if (writer != null) {
+                writer.close();
+                Files.deleteIfExists(temp);
+                writer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.BloomFilter;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloom filter of every issued short code, so redirects for codes that were never issued can be
+ * answered with a 404 without touching Redis or Postgres.
+ *
+ * A replica only knows about codes it issued itself plus what it has loaded, so the filter is only
+ * trusted for codes older than {@code coveredUntil}: the time up to which it has seen every row.
+ * Snowflake IDs carry their creation time, so newer codes (possibly issued by another replica)
+ * simply take the normal lookup path. The filter catches up with an incremental primary-key scan
+ * every refresh interval, and full builds are shared with other replicas through a Redis snapshot.
+ */
+@Service
+public class ShortCodeFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortCodeFilter.class);
+
+    private static final byte[] SNAPSHOT_KEY = "shortcodes:bloom".getBytes(StandardCharsets.UTF_8);
+    // "<coveredUntil>:<insertions>:<capacity>"
+    private static final byte[] SNAPSHOT_META_KEY = "shortcodes:bloom:meta".getBytes(StandardCharsets.UTF_8);
+
+    // Rows are visible to the scan only after commit; allow for slow transactions and clock skew
+    private static final long SAFETY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private UrlWriteBehind urlWriteBehind;
+
+    @Value("${linklet.shortcode-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${linklet.shortcode-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability;
+
+    @Value("${linklet.shortcode-filter.minimum-capacity:1000000}")
+    private long minimumCapacity;
+
+    private final Counter rejectedCounter;
+
+    // A filter and the time up to which it has seen every row, published together so a reader never
+    // pairs a new coveredUntil with an older, smaller filter
+    private record Coverage(BloomFilter filter, long coveredUntil) {
+    }
+
+    // null until the first build or load has finished
+    private volatile Coverage coverage;
+    private volatile long capacity;
+    private final AtomicLong insertions = new AtomicLong();
+
+    // Serializes rebuilds and catch-ups (a lock rather than synchronized, so virtual threads don't pin)
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    @Autowired
+    public ShortCodeFilter(MeterRegistry meterRegistry) {
+        this.rejectedCounter = Counter.builder("linklet.shortcode-filter.rejected")
+                .description("Redirects answered as not found by the Bloom filter alone")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true only if the code was certainly never issued; false means "look it up"
+     */
+    public boolean definitelyMissing(String shortCode) {
+        long id = Base62.decode(shortCode);
+        if (id < 0) {
+            // Not even a valid code
+            rejectedCounter.increment();
+            return true;
+        }
+
+        Coverage current = coverage;
+        if (current == null) {
+            return false;
+        }
+
+        long issuedAt = SnowflakeIdGenerator.timestampOf(id);
+        if (issuedAt > System.currentTimeMillis() + SAFETY_MARGIN_MILLIS) {
+            // Claims to be issued in the future
+            rejectedCounter.increment();
+            return true;
+        }
+        if (issuedAt >= current.coveredUntil()) {
+            return false;
+        }
+
+        if (current.filter().mightContain(shortCode)) {
+            return false;
+        }
+        rejectedCounter.increment();
+        return true;
+    }
+
+    public void add(String shortCode) {
+        Coverage current = coverage;
+        if (current != null) {
+            current.filter().put(shortCode);
+            insertions.incrementAndGet();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            // Building can take a while on a large table; don't hold up startup (redirects work meanwhile)
+            Thread.ofPlatform().name("shortcode-filter-init").daemon().start(this::initialize);
+        }
+    }
+
+    private void initialize() {
+        refreshLock.lock();
+        try {
+            if (coverage == null && !loadSnapshot()) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not build the short code filter, retrying on the next refresh: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${linklet.shortcode-filter.refresh-interval-ms:300000}",
+               initialDelayString = "${linklet.shortcode-filter.refresh-interval-ms:300000}")
+    public void refresh() {
+        if (!enabled || !refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            if (coverage == null) {
+                // Nothing built or loaded yet, e.g. Postgres or Redis was down at startup
+                if (!loadSnapshot()) {
+                    rebuild();
+                }
+            } else if (insertions.get() > capacity) {
+                // Over capacity the false positive rate climbs, so resize
+                rebuild();
+            } else {
+                catchUp();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Short code filter refresh failed: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Full scan of urls into a new, freshly sized filter, then share it through Redis
+    private void rebuild() {
+        long scanStartedAt = urlWriteBehind.visibleUntil();
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM urls", Long.class);
+        long newCapacity = Math.max(minimumCapacity, (rows == null ? 0 : rows) * 2);
+        BloomFilter next = BloomFilter.create(newCapacity, falsePositiveProbability);
+
+        long[] loaded = new long[1];
+        jdbcTemplate.query("SELECT short_code FROM urls", rs -> {
+            next.put(rs.getString(1));
+            loaded[0]++;
+        });
+
+        Coverage built = new Coverage(next, scanStartedAt - SAFETY_MARGIN_MILLIS);
+        capacity = newCapacity;
+        insertions.set(loaded[0]);
+        coverage = built;
+        log.info("Short code filter built from {} rows ({} bits)", loaded[0], next.bitCount());
+
+        publishSnapshot(next, built.coveredUntil(), loaded[0], newCapacity);
+    }
+
+    // Adds rows created since coveredUntil, walking the primary key from the first possible ID
+    private void catchUp() {
+        long scanStartedAt = urlWriteBehind.visibleUntil();
+        Coverage current = coverage;
+        long[] loaded = new long[1];
+        jdbcTemplate.query("SELECT short_code FROM urls WHERE id >= ?", rs -> {
+            current.filter().put(rs.getString(1));
+            loaded[0]++;
+        }, SnowflakeIdGenerator.firstIdAt(current.coveredUntil() - SAFETY_MARGIN_MILLIS));
+
+        insertions.addAndGet(loaded[0]);
+        // The rows are in the filter before the coverage that relies on them is published
+        coverage = new Coverage(current.filter(), scanStartedAt - SAFETY_MARGIN_MILLIS);
+    }
+
+    private boolean loadSnapshot() {
+        byte[][] snapshot = redisTemplate.execute((RedisCallback<byte[][]>) connection -> new byte[][]{
+                connection.stringCommands().get(SNAPSHOT_KEY),
+                connection.stringCommands().get(SNAPSHOT_META_KEY)
+        });
+        if (snapshot == null || snapshot[0] == null || snapshot[1] == null) {
+            return false;
+        }
+
+        try {
+            String[] meta = new String(snapshot[1], StandardCharsets.UTF_8).split(":");
+            Coverage loaded = new Coverage(BloomFilter.fromByteArray(snapshot[0]), Long.parseLong(meta[0]));
+            insertions.set(Long.parseLong(meta[1]));
+            capacity = Long.parseLong(meta[2]);
+            coverage = loaded;
+        } catch (RuntimeException e) {
+            log.warn("Ignoring unreadable short code filter snapshot: {}", e.getMessage());
+            return false;
+        }
+
+        // Anything issued after the snapshot was taken comes from the primary key
+        catchUp();
+        log.info("Short code filter loaded from Redis snapshot");
+        return true;
+    }
+
+    private void publishSnapshot(BloomFilter snapshot, long snapshotCoveredUntil, long snapshotInsertions, long snapshotCapacity) {
+        try {
+            byte[] bytes = snapshot.toByteArray();
+            byte[] meta = (snapshotCoveredUntil + ":" + snapshotInsertions + ":" + snapshotCapacity)
+                    .getBytes(StandardCharsets.UTF_8);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().set(SNAPSHOT_KEY, bytes);
+                connection.stringCommands().set(SNAPSHOT_META_KEY, meta);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not publish short code filter snapshot: {}", e.getMessage());
+        }
+    }
+}
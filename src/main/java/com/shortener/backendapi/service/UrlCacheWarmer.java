@@ -0,0 +1,240 @@
+package com.shortener.backendapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the Redis URL cache warm for popular links.
+ *
+ * Every minute the hour's hot set (from HotLinksTracker) gets refresh-ahead: TTLs extended,
+ * expired entries reloaded. Every few minutes the hot set's mappings are snapshotted to a local
+ * file. If Redis comes back empty (startup against a fresh instance, FLUSHALL, failover to an
+ * unsynced replica) the snapshot is replayed in pipelined batches, so hot links don't all miss
+ * to Postgres at the same moment.
+ *
+ * An empty Redis is detected by a marker key, written after every replay and never expiring.
+ */
+@Service
+public class UrlCacheWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlCacheWarmer.class);
+
+    private static final String MARKER_KEY = "cache:warm-marker";
+    // Strings are length-prefixed UTF-8; writeUTF can't hold links over 64 KB
+    private static final int SNAPSHOT_VERSION = 2;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private HotLinksTracker hotLinksTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${linklet.cache.warmup.snapshot-path:${java.io.tmpdir}/linklet-hot-set.bin}")
+    private Path snapshotPath;
+
+    @Value("${linklet.cache.warmup.replay-batch-size:1000}")
+    private int replayBatchSize;
+
+    @Value("${linklet.cache.redis.hot-ttl-hours:168}")
+    private long hotTtlHours;
+
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private final AtomicInteger snapshotSize = new AtomicInteger();
+
+    private Counter extendedCounter;
+    private Counter reloadedCounter;
+    private Counter replayedCounter;
+    private Counter replaysCounter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        extendedCounter = Counter.builder("linklet.cache.refresh-ahead")
+                .description("Hot links whose Redis entry was refreshed before expiring")
+                .tag("action", "extended")
+                .register(meterRegistry);
+        reloadedCounter = Counter.builder("linklet.cache.refresh-ahead")
+                .description("Hot links whose Redis entry was refreshed before expiring")
+                .tag("action", "reloaded")
+                .register(meterRegistry);
+        replayedCounter = Counter.builder("linklet.cache.warmup.replayed")
+                .description("Mappings restored into an empty Redis; each is a Postgres miss avoided")
+                .register(meterRegistry);
+        replaysCounter = Counter.builder("linklet.cache.warmup.replays")
+                .description("Times Redis was found empty and the hot-set snapshot was replayed")
+                .register(meterRegistry);
+        Gauge.builder("linklet.cache.warmup.snapshot.size", snapshotSize, AtomicInteger::get)
+                .description("Mappings in the last hot-set snapshot written or read")
+                .register(meterRegistry);
+
+        if (enabled) {
+            replayIfRedisEmpty();
+        }
+    }
+
+    @Scheduled(cron = "${linklet.cache.warmup.refresh-cron:20 * * * * *}")
+    void refreshAhead() {
+        List<String> hotSet = hotLinksTracker.hotSet();
+        if (!enabled || hotSet.isEmpty()) {
+            return;
+        }
+        try {
+            int reloaded = urlService.refreshAhead(hotSet);
+            reloadedCounter.increment(reloaded);
+            extendedCounter.increment(hotSet.size() - reloaded);
+        } catch (RuntimeException e) {
+            log.warn("Refresh-ahead of {} hot links failed: {}", hotSet.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${linklet.cache.warmup.failover-check-ms:15000}",
+            initialDelayString = "${linklet.cache.warmup.failover-check-ms:15000}")
+    void checkForFailover() {
+        if (enabled) {
+            replayIfRedisEmpty();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${linklet.cache.warmup.snapshot-interval-ms:300000}",
+            initialDelayString = "${linklet.cache.warmup.snapshot-interval-ms:300000}")
+    void writeSnapshot() {
+        List<String> hotSet = hotLinksTracker.hotSet();
+        if (!enabled || hotSet.isEmpty()) {
+            return;
+        }
+
+        try {
+            // 1. Hot links are in Redis by definition; fetch their targets in one MGET
+            List<String> longUrls = redisTemplate.opsForValue().multiGet(hotSet);
+            if (longUrls == null) {
+                return;
+            }
+
+            // 2. Write next to the old snapshot, then swap, so a crash never leaves half a file
+            Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            int written = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                for (int i = 0; i < hotSet.size(); i++) {
+                    if (longUrls.get(i) != null) {
+                        out.writeBoolean(true);
+                        writeString(out, hotSet.get(i));
+                        writeString(out, longUrls.get(i));
+                        written++;
+                    }
+                }
+                out.writeBoolean(false);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotSize.set(written);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write hot-set snapshot to {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private void replayIfRedisEmpty() {
+        if (!replayLock.tryLock()) {
+            return;
+        }
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(MARKER_KEY))) {
+                return;
+            }
+
+            Map<String, String> snapshot = readSnapshot();
+            if (!snapshot.isEmpty()) {
+                log.info("Redis has no warm-up marker; replaying {} hot links from {}", snapshot.size(), snapshotPath);
+                replay(snapshot);
+                replaysCounter.increment();
+            }
+            redisTemplate.opsForValue().set(MARKER_KEY, Long.toString(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            log.warn("Hot-set replay failed: {}", e.getMessage());
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    private void replay(Map<String, String> snapshot) {
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(hotTtlHours);
+        List<Map.Entry<String, String>> entries = new ArrayList<>(snapshot.entrySet());
+        for (int from = 0; from < entries.size(); from += replayBatchSize) {
+            List<Map.Entry<String, String>> batch = entries.subList(from, Math.min(entries.size(), from + replayBatchSize));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = new DefaultStringRedisConnection(connection);
+                batch.forEach(entry -> stringConnection.setEx(entry.getKey(), ttlSeconds, entry.getValue()));
+                return null;
+            });
+            replayedCounter.increment(batch.size());
+        }
+    }
+
+    private Map<String, String> readSnapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        if (!Files.exists(snapshotPath)) {
+            return snapshot;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return snapshot;
+            }
+            while (in.readBoolean()) {
+                snapshot.put(readString(in), readString(in));
+            }
+            snapshotSize.set(snapshot.size());
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable hot-set snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+        return snapshot;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
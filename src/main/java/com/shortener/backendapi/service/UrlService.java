@@ -1,13 +1,35 @@
 package com.shortener.backendapi.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.shortener.backendapi.config.NearCacheConfig;
 import com.shortener.backendapi.model.Url; // <--- Using the new class
+import com.shortener.backendapi.repository.UrlBatchRepository;
 import com.shortener.backendapi.repository.UrlRepository;
+import com.shortener.backendapi.util.Base62;
 import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -22,54 +44,369 @@ public class UrlService {
     @Autowired
     private StringRedisTemplate redisTemplate;
 
-    // Base62 characters for encoding
-    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    @Autowired
+    private AsyncCache<String, String> urlNearCache;
+
+    @Autowired
+    private ShortCodeFilter shortCodeFilter;
+
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+
+    @Autowired
+    private UrlWriteBehind urlWriteBehind;
+
+    @Autowired
+    private LocalUrlIndex localUrlIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.cache.redis.ttl-hours:24}")
+    private long ttlHours;
+
+    // Hot links are kept (and re-extended every minute) for longer, so they never expire under load
+    @Value("${linklet.cache.redis.hot-ttl-hours:168}")
+    private long hotTtlHours;
+
+    // Bulkhead for redirect misses that reach Postgres. With virtual threads nothing else bounds
+    // how many requests pile up waiting for the (small) Hikari pool.
+    @Value("${linklet.db.max-concurrent-lookups:16}")
+    private int maxConcurrentLookups;
+
+    @Value("${linklet.db.lookup-permit-timeout-ms:250}")
+    private long lookupPermitTimeoutMs;
+
+    // Rows created before ids became Snowflake IDs can only be found by short code. While on, a
+    // code that is in no cache costs two Postgres queries (by id, then by short_code) when the link
+    // doesn't exist. Turn this off once src/resources/migrate_snowflake_ids.sql has run.
+    @Value("${linklet.urls.legacy-short-code-lookup:true}")
+    private boolean legacyShortCodeLookup;
+
+    private Semaphore lookupPermits;
+
+    // Redirect lookup stages, resolved once so the hot path doesn't hit the registry
+    private Timer nearCacheTimer;
+    private Timer redisTimer;
+    private Timer indexTimer;
+    private Timer dbTimer;
+    private Counter filteredLookups;
+    private Counter nearCacheHits;
+    private Counter redisHits;
+    private Counter indexHits;
+    private Counter dbHits;
+    private Counter missingLookups;
+    private Counter redisFailures;
 
-    public String shortenUrl(String longUrl) {
+    @PostConstruct
+    void init() {
+        lookupPermits = new Semaphore(maxConcurrentLookups, true);
+
+        nearCacheTimer = stageTimer("near-cache");
+        redisTimer = stageTimer("redis");
+        indexTimer = stageTimer("index");
+        dbTimer = stageTimer("db");
+        filteredLookups = lookupCounter("filtered");
+        nearCacheHits = lookupCounter("near-cache");
+        redisHits = lookupCounter("redis");
+        indexHits = lookupCounter("index");
+        dbHits = lookupCounter("db");
+        missingLookups = lookupCounter("missing");
+        redisFailures = Counter.builder("linklet.redirect.redis.failed")
+                .description("Redirect lookups that could not use Redis and carried on without it")
+                .register(meterRegistry);
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("linklet.redirect.stage")
+                .description("Time spent in one stage of a redirect lookup")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private Counter lookupCounter(String source) {
+        return Counter.builder("linklet.redirect.lookups")
+                .description("Redirect lookups by the tier that answered them")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    // userId may be null for anonymous links; either way the row is written exactly once
+    public String shortenUrl(String longUrl, Long userId) {
         // 1. Generate unique ID
         long id = snowflakeIdGenerator.nextId();
 
         // 2. Convert ID to Base62 (Short Code)
-        String shortCode = encodeBase62(id);
+        String shortCode = Base62.encode(id);
 
         // 3. Save to Database (Using the new Url class)
         Url url = new Url();
+        url.setId(id);
         url.setLongUrl(longUrl);
         url.setShortCode(shortCode);
         url.setCreatedDate(new Timestamp(System.currentTimeMillis()));
-        // Note: userId is handled in the Controller for now
-        
-        urlRepository.save(url);
+        url.setUserId(userId);
+
+        if (urlWriteBehind.isEnabled()) {
+            // Durable in the local log (one fsync per group of requests); Postgres gets it in the background
+            urlWriteBehind.append(url);
+        } else {
+            urlRepository.save(url);
+        }
 
-        // 4. Cache in Redis (Key: shortCode, Value: longUrl)
-        redisTemplate.opsForValue().set(shortCode, longUrl, 24, TimeUnit.HOURS);
+        // 4. Cache in Redis (Key: shortCode, Value: longUrl); with write-behind this is how other replicas see it
+        redisTemplate.opsForValue().set(shortCode, longUrl, ttlHours, TimeUnit.HOURS);
+
+        // 5. Replace any negative entry a scanner may have left for this code
+        urlNearCache.put(shortCode, CompletableFuture.completedFuture(longUrl));
+        shortCodeFilter.add(shortCode);
 
         return shortCode;
     }
 
+    /**
+     * Shortens many URLs at once: one ID reservation, one transaction of JDBC batch inserts
+     * and one pipelined Redis round trip, instead of a save and a SET per link.
+     *
+     * @return the short codes, in the same order as {@code longUrls}
+     */
+    public List<String> shortenUrls(List<String> longUrls, Long userId) {
+        // 1. Reserve all IDs with a single CAS
+        long[] ids = snowflakeIdGenerator.nextIds(longUrls.size());
+
+        // 2. Convert IDs to Base62 (Short Codes)
+        String[] shortCodes = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            shortCodes[i] = Base62.encode(ids[i]);
+        }
+
+        // 3. Insert every row in one transaction, sent as JDBC batches
+        Timestamp createdDate = new Timestamp(System.currentTimeMillis());
+        List<Url> urls = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Url url = new Url();
+            url.setId(ids[i]);
+            url.setLongUrl(longUrls.get(i));
+            url.setShortCode(shortCodes[i]);
+            url.setCreatedDate(createdDate);
+            url.setUserId(userId);
+            urls.add(url);
+        }
+        urlBatchRepository.insertAll(urls, false);
+
+        // 4. Warm Redis only after the commit, in one pipelined round trip
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = new DefaultStringRedisConnection(connection);
+            for (int i = 0; i < shortCodes.length; i++) {
+                stringConnection.setEx(shortCodes[i], ttlSeconds, longUrls.get(i));
+            }
+            return null;
+        });
+
+        // 5. Drop any negative entries a scanner may have left for these codes
+        List<String> codes = Arrays.asList(shortCodes);
+        urlNearCache.synchronous().invalidateAll(codes);
+        codes.forEach(shortCodeFilter::add);
+
+        return codes;
+    }
+
+    /**
+     * Resolves a short code through the near cache, Redis and finally Postgres.
+     *
+     * @return the original URL, or {@code null} if the short code was never issued
+     */
     public String getOriginalUrl(String shortCode) {
-        // 1. Check Redis first (Fast!)
-        String cachedUrl = redisTemplate.opsForValue().get(shortCode);
+        // 0. Codes that were certainly never issued (bots scanning paths) stop here
+        if (shortCodeFilter.definitelyMissing(shortCode)) {
+            filteredLookups.increment();
+            return null;
+        }
+
+        // 1. Check the in-process near cache first (no network hop)
+        long start = System.nanoTime();
+        CompletableFuture<String> cached = urlNearCache.getIfPresent(shortCode);
+        nearCacheTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (cached != null) {
+            nearCacheHits.increment();
+        } else {
+            // 2. Single-flight: only the thread that installs the future goes to Redis/DB,
+            // concurrent requests for the same cold code wait on that one load
+            CompletableFuture<String> loading = new CompletableFuture<>();
+            cached = urlNearCache.asMap().putIfAbsent(shortCode, loading);
+            if (cached == null) {
+                try {
+                    loading.complete(loadOriginalUrl(shortCode));
+                } catch (RuntimeException e) {
+                    // Drop the future so the next request retries. Waiters get the failure as the
+                    // cause of a cancellation: Caffeine logs any other failed future at WARN with a
+                    // stack trace, which under overload would be one per rejected redirect.
+                    urlNearCache.asMap().remove(shortCode, loading);
+                    CancellationException failed = new CancellationException(e.getMessage());
+                    failed.initCause(e);
+                    loading.completeExceptionally(failed);
+                    throw e;
+                }
+                cached = loading;
+            }
+        }
+
+        String longUrl;
+        try {
+            longUrl = cached.join();
+        } catch (CompletionException | CancellationException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return NearCacheConfig.MISSING.equals(longUrl) ? null : longUrl;
+    }
+
+    /**
+     * Loads codes that are not in the near cache yet, e.g. links that just became popular,
+     * from Redis in one MGET. Codes Redis doesn't have are left to the normal lookup path.
+     */
+    public void warmNearCache(List<String> shortCodes) {
+        List<String> cold = shortCodes.stream()
+                .filter(shortCode -> urlNearCache.getIfPresent(shortCode) == null)
+                .toList();
+        if (cold.isEmpty()) {
+            return;
+        }
+
+        List<String> longUrls = redisTemplate.opsForValue().multiGet(cold);
+        if (longUrls == null) {
+            return;
+        }
+        for (int i = 0; i < cold.size(); i++) {
+            if (longUrls.get(i) != null) {
+                urlNearCache.asMap().putIfAbsent(cold.get(i), CompletableFuture.completedFuture(longUrls.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Refresh-ahead for popular links: extends their Redis TTL to the hot TTL in one pipelined
+     * round trip, and reloads from Postgres any that already expired, before a visitor has to.
+     *
+     * @return the number of codes reloaded from Postgres
+     */
+    public int refreshAhead(List<String> hotCodes) {
+        if (hotCodes.isEmpty()) {
+            return 0;
+        }
+
+        // 1. EXPIRE answers false for keys that no longer exist
+        long hotTtlSeconds = TimeUnit.HOURS.toSeconds(hotTtlHours);
+        List<Object> extended = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = new DefaultStringRedisConnection(connection);
+            hotCodes.forEach(shortCode -> stringConnection.expire(shortCode, hotTtlSeconds));
+            return null;
+        });
+
+        // 2. Reload the expired ones now, on this background thread
+        int reloaded = 0;
+        for (int i = 0; i < hotCodes.size(); i++) {
+            if (Boolean.TRUE.equals(extended.get(i))) {
+                continue;
+            }
+            String shortCode = hotCodes.get(i);
+            Url url;
+            try {
+                url = findUrlWithPermit(shortCode);
+            } catch (TransientDataAccessException e) {
+                // Postgres is busy serving redirects; they take priority
+                break;
+            }
+            if (url != null) {
+                redisTemplate.opsForValue().set(shortCode, url.getLongUrl(), hotTtlHours, TimeUnit.HOURS);
+                reloaded++;
+            }
+        }
+        return reloaded;
+    }
+
+    private String loadOriginalUrl(String shortCode) {
+        // 1. Check Redis (Fast!)
+        String cachedUrl = null;
+        boolean redisAvailable = true;
+        try {
+            cachedUrl = redisTimer.record(() -> redisTemplate.opsForValue().get(shortCode));
+        } catch (DataAccessException e) {
+            // Redis down or timing out: the local index and Postgres can still answer
+            redisFailures.increment();
+            redisAvailable = false;
+        }
         if (cachedUrl != null) {
+            redisHits.increment();
             return cachedUrl;
         }
 
-        // 2. If not in Redis, check Database
-        Url url = urlRepository.findByShortCode(shortCode)
-                .orElseThrow(() -> new RuntimeException("URL not found"));
+        // 2. Check the local memory-mapped index; it has every code up to its last refresh
+        String indexedUrl = indexTimer.record(() -> localUrlIndex.get(shortCode));
+        if (indexedUrl != null) {
+            indexHits.increment();
+            if (redisAvailable) {
+                cacheInRedis(shortCode, indexedUrl);
+            }
+            return indexedUrl;
+        }
 
-        // 3. Save back to Redis for next time
-        redisTemplate.opsForValue().set(shortCode, url.getLongUrl(), 24, TimeUnit.HOURS);
+        // 3. Only codes newer than the index (or never issued) reach the Database
+        Url url = dbTimer.record(() -> findUrlWithPermit(shortCode));
+        if (url == null) {
+            missingLookups.increment();
+            return NearCacheConfig.MISSING;
+        }
+        dbHits.increment();
+
+        // 4. Save back to Redis for next time
+        if (redisAvailable) {
+            cacheInRedis(shortCode, url.getLongUrl());
+        }
 
         return url.getLongUrl();
     }
 
-    private String encodeBase62(long id) {
-        StringBuilder sb = new StringBuilder();
-        while (id > 0) {
-            sb.append(BASE62.charAt((int) (id % 62)));
-            id /= 62;
+    // Best effort: the redirect already has its answer
+    private void cacheInRedis(String shortCode, String longUrl) {
+        try {
+            redisTemplate.opsForValue().set(shortCode, longUrl, ttlHours, TimeUnit.HOURS);
+        } catch (DataAccessException e) {
+            redisFailures.increment();
         }
-        return sb.reverse().toString();
     }
-}
\ No newline at end of file
+
+    private Url findUrlWithPermit(String shortCode) {
+        boolean acquired;
+        try {
+            acquired = lookupPermits.tryAcquire(lookupPermitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            // Shed load quickly instead of queueing on the connection pool's 10s timeout
+            throw new TransientDataAccessResourceException("Too many concurrent database lookups");
+        }
+
+        try {
+            return findUrl(shortCode);
+        } finally {
+            lookupPermits.release();
+        }
+    }
+
+    private Url findUrl(String shortCode) {
+        // The code is the Base62 primary key, so decode it instead of using the short_code index
+        long id = Base62.decode(shortCode);
+        if (id >= 0) {
+            Url url = urlRepository.findById(id).orElse(null);
+            // Non-canonical spellings (e.g. leading zeros) decode to the same id but are not valid codes
+            if (url != null && shortCode.equals(url.getShortCode())) {
+                return url;
+            }
+        }
+
+        return legacyShortCodeLookup ? urlRepository.findByShortCode(shortCode).orElse(null) : null;
+    }
+}
@@ -0,0 +1,481 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.model.Url;
+import com.shortener.backendapi.repository.UrlBatchRepository;
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.LinkLog;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.redis.connection.DefaultStringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional write-behind path for new links (linklet.shorten.write-behind.enabled).
+ *
+ * A new mapping is appended to a local {@link LinkLog} and the request returns once it is on disk;
+ * concurrent requests share one fsync (group commit). A background writer then inserts the rows
+ * into urls in JDBC batches, retrying until Postgres accepts them. Log files are rolled by size and
+ * deleted once every row in them is in Postgres, so whatever is left on disk at startup is replayed.
+ *
+ * Until its row is inserted a link is only readable through Redis, and ShortCodeFilter and
+ * LocalUrlIndex must not treat its id range as complete. Each replica therefore publishes the
+ * creation time of its oldest pending link, and {@link #visibleUntil()} holds the scanners back to
+ * the minimum across replicas.
+ * Entries carry a heartbeat; one that has not been refreshed for pending-stale-after-ms belongs to a
+ * replica that is gone and is ignored, so it can't hold back the scanners forever. If that replica
+ * does come back and replays its log, the replayed links are in Redis again, but a Bloom filter that
+ * has already moved past them only learns about them on its next rebuild.
+ */
+@Service
+public class UrlWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlWriteBehind.class);
+
+    private static final String PENDING_SINCE_KEY = "shorten:write-behind:pending-since";
+    private static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final String LOG_PREFIX = "links-";
+    private static final String LOG_SUFFIX = ".log";
+
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.shorten.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${linklet.shorten.write-behind.directory:${java.io.tmpdir}/linklet-links}")
+    private Path directory;
+
+    // Log files are rolled at this size and deleted once all their rows are in Postgres
+    @Value("${linklet.shorten.write-behind.max-log-bytes:67108864}")
+    private long maxLogBytes;
+
+    @Value("${linklet.shorten.write-behind.max-pending:1000000}")
+    private int maxPending;
+
+    @Value("${linklet.shorten.write-behind.append-timeout-ms:1000}")
+    private long appendTimeoutMs;
+
+    @Value("${linklet.shorten.write-behind.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${linklet.shorten.write-behind.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    // Pending-since entries not refreshed for this long are from replicas that are gone
+    @Value("${linklet.shorten.write-behind.pending-stale-after-ms:300000}")
+    private long pendingStaleAfterMs;
+
+    @Value("${linklet.shorten.batch.jdbc-batch-size:1000}")
+    private int insertBatchSize;
+
+    @Value("${linklet.cache.redis.ttl-hours:24}")
+    private long ttlHours;
+
+    private record Append(LinkLog.Entry entry, CompletableFuture<Void> durable) {
+    }
+
+    private record Logged(long logSequence, LinkLog.Entry entry) {
+    }
+
+    private final BlockingQueue<Append> appends = new ArrayBlockingQueue<>(65536);
+    private final BlockingQueue<Logged> inserts = new LinkedBlockingQueue<>();
+    // Rows not yet in Postgres, per log file
+    private final ConcurrentSkipListMap<Long, AtomicInteger> outstanding = new ConcurrentSkipListMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private LinkLog activeLog;
+    private volatile long activeSequence;
+    // Set after a failed write or fsync: the active file's tail is suspect, so the next group starts a new one
+    private boolean rollBeforeNextAppend;
+    private volatile long inFlightSince = Long.MAX_VALUE;
+    private long lastPublishedSince = -1;
+    private long lastPublishedAt;
+    // Last pending-since read from Redis, used while Redis can't be read (-1: none yet)
+    private volatile long lastPendingSince = -1;
+
+    private Thread appender;
+    private Thread inserter;
+    private volatile boolean running;
+
+    private Timer syncTimer;
+    private Counter insertedCounter;
+    private Counter insertFailedCounter;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        syncTimer = Timer.builder("linklet.shorten.write-behind.sync")
+                .description("Time to append and fsync one group of new links")
+                .register(meterRegistry);
+        insertedCounter = Counter.builder("linklet.shorten.write-behind.inserted")
+                .description("Links written to Postgres by the write-behind writer")
+                .register(meterRegistry);
+        insertFailedCounter = Counter.builder("linklet.shorten.write-behind.insert.failed")
+                .description("Write-behind batch inserts that failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("linklet.shorten.write-behind.pending", pending, AtomicInteger::get)
+                .description("Links acknowledged to clients but not yet in Postgres")
+                .register(meterRegistry);
+        TimeGauge.builder("linklet.shorten.write-behind.lag", this, TimeUnit.MILLISECONDS, UrlWriteBehind::lagMillis)
+                .description("Age of the oldest link not yet in Postgres")
+                .register(meterRegistry);
+
+        // 1. Whatever a previous run left on disk was acknowledged but maybe never inserted
+        Files.createDirectories(directory);
+        long nextSequence = replay();
+
+        // 2. New links go to a fresh file, so replayed files can be deleted as soon as they are inserted
+        activeSequence = nextSequence;
+        activeLog = LinkLog.open(logPath(activeSequence));
+
+        running = true;
+        appender = Thread.ofPlatform().name("write-behind-log").daemon().start(this::appendLoop);
+        inserter = Thread.ofPlatform().name("write-behind-insert").daemon().start(this::insertLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        if (!enabled) {
+            return;
+        }
+        // Both threads finish what is queued; rows that still can't be inserted stay in the log
+        running = false;
+        appender.join(TimeUnit.SECONDS.toMillis(5));
+        inserter.join(TimeUnit.SECONDS.toMillis(5));
+        activeLog.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Makes a new link durable in the local log; returns once it has been fsynced.
+     */
+    public void append(Url url) {
+        if (pending.get() >= maxPending) {
+            throw new TransientDataAccessResourceException("Too many new links waiting for the database");
+        }
+
+        Append append = new Append(new LinkLog.Entry(url.getId(), url.getLongUrl(),
+                url.getCreatedDate().getTime(), url.getUserId()), new CompletableFuture<>());
+        try {
+            if (!appends.offer(append, appendTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new TransientDataAccessResourceException("Link log is not keeping up");
+            }
+            append.durable().get(appendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while writing the link log");
+        } catch (TimeoutException e) {
+            throw new TransientDataAccessResourceException("Link log is not keeping up");
+        } catch (ExecutionException e) {
+            throw new DataAccessResourceFailureException("Could not write the link log", e.getCause());
+        }
+    }
+
+    /**
+     * @return a time before which every row is visible to a scan of urls starting now: the current
+     *         time, or the creation time of the oldest link on any replica that is not in Postgres yet
+     */
+    public long visibleUntil() {
+        return Math.min(System.currentTimeMillis(), pendingSince());
+    }
+
+    // Long.MAX_VALUE if nothing is pending
+    private long pendingSince() {
+        if (!enabled) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            long since = Long.MAX_VALUE;
+            for (Object value : redisTemplate.opsForHash().values(PENDING_SINCE_KEY)) {
+                // "since:heartbeat"; stale entries are left alone, their replica may still refresh them
+                String[] parts = ((String) value).split(":");
+                if (parts.length == 2 && now - Long.parseLong(parts[1]) <= pendingStaleAfterMs) {
+                    since = Math.min(since, Long.parseLong(parts[0]));
+                }
+            }
+            lastPendingSince = since;
+            return since;
+        } catch (RuntimeException e) {
+            if (lastPendingSince < 0) {
+                throw e;
+            }
+            // Other replicas' progress as of the last read, and our own as of now
+            log.debug("Could not read write-behind progress, using the last value read", e);
+            return Math.min(lastPendingSince, oldestLocalPending());
+        }
+    }
+
+    private void appendLoop() {
+        List<Append> group = new ArrayList<>();
+        List<LinkLog.Entry> entries = new ArrayList<>();
+
+        while (running || !appends.isEmpty()) {
+            try {
+                // 1. Everything that queued up during the last fsync goes into the next one
+                Append first = appends.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                appends.drainTo(group, insertBatchSize - 1);
+                group.forEach(append -> entries.add(append.entry()));
+
+                // 2. One write and one fsync for the whole group
+                if (rollBeforeNextAppend) {
+                    roll();
+                    rollBeforeNextAppend = false;
+                }
+                long start = System.nanoTime();
+                activeLog.append(entries);
+                activeLog.sync();
+                syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                // 3. Hand the rows to the inserter, then release the waiting requests
+                long sequence = activeSequence;
+                outstanding.computeIfAbsent(sequence, key -> new AtomicInteger()).addAndGet(entries.size());
+                pending.addAndGet(entries.size());
+                entries.forEach(entry -> inserts.add(new Logged(sequence, entry)));
+                group.forEach(append -> append.durable().complete(null));
+
+                if (activeLog.size() >= maxLogBytes) {
+                    roll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to write {} links to the link log: {}", group.size(), e.getMessage());
+                group.forEach(append -> append.durable().completeExceptionally(e));
+                rollBeforeNextAppend = true;
+            } finally {
+                group.clear();
+                entries.clear();
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        LinkLog previous = activeLog;
+        // A file that only ever saw failed groups has no rows to wait for; let it be deleted
+        outstanding.putIfAbsent(activeSequence, new AtomicInteger());
+        activeLog = LinkLog.open(logPath(activeSequence + 1));
+        activeSequence = activeSequence + 1;
+        previous.close();
+        deleteInsertedLogs();
+    }
+
+    private void insertLoop() {
+        List<Logged> batch = new ArrayList<>(insertBatchSize);
+
+        while (running || !inserts.isEmpty()) {
+            try {
+                Logged first = inserts.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    publishPendingSince();
+                    continue;
+                }
+                batch.add(first);
+                inserts.drainTo(batch, insertBatchSize - 1);
+                inFlightSince = batch.stream().mapToLong(logged -> logged.entry().createdAt()).min().orElse(Long.MAX_VALUE);
+                publishPendingSince();
+
+                // 1. Insert the batch, retrying until Postgres takes it (or we are shutting down)
+                if (!insertWithRetry(batch)) {
+                    return;
+                }
+
+                // 2. Rows are safe in Postgres: release their log files
+                insertedCounter.increment(batch.size());
+                pending.addAndGet(-batch.size());
+                batch.forEach(logged -> outstanding.get(logged.logSequence()).decrementAndGet());
+                inFlightSince = Long.MAX_VALUE;
+                deleteInsertedLogs();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+        publishPendingSince();
+    }
+
+    private boolean insertWithRetry(List<Logged> batch) throws InterruptedException {
+        List<Url> urls = batch.stream().map(logged -> toUrl(logged.entry())).toList();
+        while (true) {
+            try {
+                // Rows replayed after a crash may already be there
+                urlBatchRepository.insertAll(urls, true);
+                return true;
+            } catch (DataAccessException e) {
+                insertFailedCounter.increment();
+                log.warn("Write-behind insert of {} links failed, retrying: {}", urls.size(), e.getMessage());
+                if (!running) {
+                    // Left in the log for the next start
+                    return false;
+                }
+                // Still alive: keep the pending-since heartbeat going while Postgres is down
+                publishPendingSince();
+                Thread.sleep(retryBackoffMs);
+            }
+        }
+    }
+
+    // Tells other replicas' ShortCodeFilter and LocalUrlIndex how far back Postgres may still be missing rows.
+    // Re-sent every HEARTBEAT_MILLIS even when unchanged, which is what keeps the entry from going stale.
+    private void publishPendingSince() {
+        long since = oldestLocalPending();
+        long now = System.currentTimeMillis();
+        if (since == lastPublishedSince && now - lastPublishedAt < HEARTBEAT_MILLIS) {
+            return;
+        }
+
+        try {
+            String field = Long.toString(snowflakeIdGenerator.getWorkerId());
+            if (since == Long.MAX_VALUE) {
+                redisTemplate.opsForHash().delete(PENDING_SINCE_KEY, field);
+            } else {
+                redisTemplate.opsForHash().put(PENDING_SINCE_KEY, field, since + ":" + now);
+            }
+            lastPublishedSince = since;
+            lastPublishedAt = now;
+        } catch (RuntimeException e) {
+            log.debug("Could not publish write-behind progress", e);
+        }
+    }
+
+    private long replay() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(UrlWriteBehind::sequenceOf));
+
+        long nextSequence = 0;
+        List<LinkLog.Entry> replayed = new ArrayList<>();
+        for (Path file : files) {
+            long sequence = sequenceOf(file);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            List<LinkLog.Entry> entries = LinkLog.read(file);
+            if (entries.isEmpty()) {
+                Files.delete(file);
+                continue;
+            }
+            outstanding.put(sequence, new AtomicInteger(entries.size()));
+            entries.forEach(entry -> inserts.add(new Logged(sequence, entry)));
+            replayed.addAll(entries);
+        }
+        if (replayed.isEmpty()) {
+            return nextSequence;
+        }
+
+        pending.addAndGet(replayed.size());
+        log.info("Replaying {} links from the write-behind log", replayed.size());
+
+        // Redis may have lost them too; they must stay readable until the inserter gets to them
+        try {
+            long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = new DefaultStringRedisConnection(connection);
+                replayed.forEach(entry -> stringConnection.setEx(Base62.encode(entry.id()), ttlSeconds, entry.longUrl()));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not restore replayed links in Redis: {}", e.getMessage());
+        }
+        return nextSequence;
+    }
+
+    private void deleteInsertedLogs() {
+        for (Map.Entry<Long, AtomicInteger> file : outstanding.headMap(activeSequence).entrySet()) {
+            if (file.getValue().get() == 0 && outstanding.remove(file.getKey(), file.getValue())) {
+                try {
+                    Files.deleteIfExists(logPath(file.getKey()));
+                } catch (IOException e) {
+                    log.warn("Could not delete inserted link log {}: {}", file.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Creation time of this replica's oldest link not yet in Postgres (Long.MAX_VALUE if none)
+    private long oldestLocalPending() {
+        Logged next = inserts.peek();
+        return Math.min(inFlightSince, next != null ? next.entry().createdAt() : Long.MAX_VALUE);
+    }
+
+    private double lagMillis() {
+        long since = oldestLocalPending();
+        return since == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - since;
+    }
+
+    private Path logPath(long sequence) {
+        return directory.resolve(LOG_PREFIX + String.format("%012d", sequence) + LOG_SUFFIX);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+
+    private static Url toUrl(LinkLog.Entry entry) {
+        Url url = new Url();
+        url.setId(entry.id());
+        url.setLongUrl(entry.longUrl());
+        url.setShortCode(Base62.encode(entry.id()));
+        url.setCreatedDate(new Timestamp(entry.createdAt()));
+        url.setUserId(entry.userId());
+        return url;
+    }
+}
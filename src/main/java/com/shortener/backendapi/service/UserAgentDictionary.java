@@ -0,0 +1,106 @@
+package com.shortener.backendapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shortener.backendapi.model.UserAgentInfo;
+import com.shortener.backendapi.util.UserAgentParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Interns User-Agent strings as small integer ids, so click events and ClickHouse rows carry
+ * a varint / UInt32 instead of 150+ bytes of header.
+ *
+ * The dictionary lives in Redis and is shared by every replica; both directions are cached
+ * in-process. Browser, OS and device class are parsed once per distinct user agent, when it
+ * is first resolved on this node, instead of at query time.
+ */
+@Service
+public class UserAgentDictionary {
+
+    // Hash-tagged so the script's keys share a slot on Redis Cluster
+    private static final String IDS_KEY = "{ua}:ids";
+    private static final String STRINGS_KEY = "{ua}:strings";
+    private static final String SEQUENCE_KEY = "{ua}:seq";
+
+    private static final RedisScript<Long> INTERN =
+            RedisScript.of(new ClassPathResource("scripts/ua_intern.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${linklet.analytics.user-agents.max-entries:1000000}")
+    private long maxEntries;
+
+    // Longer headers are truncated before interning; nothing useful is past this point
+    @Value("${linklet.analytics.user-agents.max-length:512}")
+    private int maxLength;
+
+    @Value("${linklet.analytics.user-agents.cache-size:50000}")
+    private long cacheSize;
+
+    private Cache<String, Integer> ids;
+    private Cache<Integer, UserAgentInfo> infos;
+    private Counter overflowCounter;
+
+    @PostConstruct
+    void init() {
+        ids = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        infos = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        overflowCounter = Counter.builder("linklet.analytics.user-agents.overflow")
+                .description("User agents dropped because the dictionary is full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the user agent's id, or 0 for a missing user agent or a full dictionary
+     */
+    public int idOf(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return 0;
+        }
+        String key = userAgent.length() > maxLength ? userAgent.substring(0, maxLength) : userAgent;
+        return ids.get(key, this::intern);
+    }
+
+    // Parsed fields for an id, or null if the id is unknown
+    public UserAgentInfo info(int id) {
+        if (id == 0) {
+            return null;
+        }
+        return infos.get(id, this::load);
+    }
+
+    public String userAgent(int id) {
+        UserAgentInfo info = info(id);
+        return info == null ? null : info.userAgent();
+    }
+
+    private Integer intern(String userAgent) {
+        Long id = redisTemplate.execute(INTERN, List.of(IDS_KEY, STRINGS_KEY, SEQUENCE_KEY),
+                userAgent, Long.toString(maxEntries));
+        if (id == null || id == 0) {
+            overflowCounter.increment();
+            return 0;
+        }
+        infos.put(id.intValue(), UserAgentParser.parse(userAgent));
+        return id.intValue();
+    }
+
+    private UserAgentInfo load(int id) {
+        Object userAgent = redisTemplate.opsForHash().get(STRINGS_KEY, Integer.toString(id));
+        return userAgent == null ? null : UserAgentParser.parse((String) userAgent);
+    }
+}
@@ -0,0 +1,73 @@
+package com.shortener.backendapi.util;
+
+/**
+ * Base62 codec for short codes (digits, then upper case, then lower case).
+ * Encoding writes digits right-to-left into a fixed-size buffer, so the only allocation is the
+ * resulting String; decoding is a table lookup per character.
+ */
+public final class Base62 {
+
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    // Long.MAX_VALUE needs 11 Base62 digits
+    public static final int MAX_LENGTH = 11;
+
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        java.util.Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base62() {
+    }
+
+    public static String encode(long id) {
+        char[] buffer = new char[MAX_LENGTH];
+        int start = encode(id, buffer);
+        return new String(buffer, start, MAX_LENGTH - start);
+    }
+
+    /**
+     * Writes the digits of {@code id} right-aligned into {@code buffer[0, MAX_LENGTH)}.
+     *
+     * @return the index of the first digit
+     */
+    public static int encode(long id, char[] buffer) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Cannot encode a negative id: " + id);
+        }
+        int pos = MAX_LENGTH;
+        do {
+            buffer[--pos] = ALPHABET[(int) (id % 62)];
+            id /= 62;
+        } while (id > 0);
+        return pos;
+    }
+
+    /**
+     * @return the decoded id, or {@code -1} if {@code code} is empty, contains characters outside
+     * the alphabet or does not fit in a non-negative long. Scanners send plenty of those, so this
+     * deliberately does not throw.
+     */
+    public static long decode(CharSequence code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return -1;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            int digit = c < 128 ? DIGITS[c] : -1;
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / 62) {
+                return -1;
+            }
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package com.shortener.backendapi.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * mightContain never returns false for a key that was put; it returns true for an absent key
+ * with roughly the false positive probability the filter was sized for.
+ */
+public final class BloomFilter {
+
+    private static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    private BloomFilter(long bitCount, int hashFunctions, AtomicLongArray words) {
+        this.bitCount = bitCount;
+        this.hashFunctions = hashFunctions;
+        this.words = words;
+    }
+
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(expectedInsertions, 1);
+        // Optimal sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) >>> 6);
+        int k = Math.max(1, (int) Math.round((double) words * 64 / n * Math.log(2)));
+        return new BloomFilter((long) words * 64, k, new AtomicLongArray(words));
+    }
+
+    public void put(CharSequence key) {
+        long h1 = hash(key, SEED_1);
+        long h2 = hash(key, SEED_2);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    public boolean mightContain(CharSequence key) {
+        long h1 = hash(key, SEED_1);
+        long h2 = hash(key, SEED_2);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    // Layout: bit count (long), hash functions (int), then the words
+    public byte[] toByteArray() {
+        int length = words.length();
+        ByteBuffer buffer = ByteBuffer.allocate(12 + length * 8);
+        buffer.putLong(bitCount).putInt(hashFunctions);
+        for (int i = 0; i < length; i++) {
+            buffer.putLong(words.get(i));
+        }
+        return buffer.array();
+    }
+
+    public static BloomFilter fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long bitCount = buffer.getLong();
+        int hashFunctions = buffer.getInt();
+        int length = (int) (bitCount >>> 6);
+        if (buffer.remaining() != length * 8 || hashFunctions < 1) {
+            throw new IllegalArgumentException("Not a serialized BloomFilter");
+        }
+        AtomicLongArray words = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            words.set(i, buffer.getLong());
+        }
+        return new BloomFilter(bitCount, hashFunctions, words);
+    }
+
+    // FNV-1a over the chars, finished with the MurmurHash3 64-bit mixer
+    private static long hash(CharSequence key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
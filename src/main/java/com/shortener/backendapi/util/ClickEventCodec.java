@@ -0,0 +1,215 @@
+package com.shortener.backendapi.util;
+
+import com.shortener.backendapi.model.ClickEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+/**
+ * Compact binary form of a ClickEvent, shared by the Redis queue, the per-link recent lists
+ * and the Kafka topic.
+ *
+ * Version 2 layout (written):
+ *   byte    version (2)
+ *   int64   timestamp, epoch millis, big-endian
+ *   varint  length + 1 of the short code (0 = null), then its UTF-8 bytes
+ *   byte    length of the packed IP (0, 4 or 16), then its raw bytes
+ *   varint  user agent id from UserAgentDictionary (0 = none)
+ *
+ * Version 1 (still read) had the IP and the user agent as length-prefixed UTF-8 strings.
+ *
+ * A typical click is ~30 bytes, against ~140 for version 1 and ~200 for the old JSON map,
+ * which all repeated the user agent. Encoding into a caller's buffer allocates nothing for
+ * IPv4 clients; the version byte never collides with '{', so old JSON payloads can still be
+ * told apart.
+ */
+public final class ClickEventCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final byte VERSION_1 = 1;
+
+    private ClickEventCodec() {
+    }
+
+    public static int encodedSize(ClickEvent event, int userAgentId) {
+        return 1 + Long.BYTES
+                + stringSize(event.shortCode())
+                + 1 + IpAddresses.packedLength(event.ipAddress())
+                + varintSize(userAgentId);
+    }
+
+    /**
+     * Writes the event at the buffer's position. The user agent itself is not written, only
+     * {@code userAgentId}, its id in the user agent dictionary.
+     *
+     * @throws java.nio.BufferOverflowException if fewer than {@link #encodedSize} bytes remain
+     */
+    public static void encode(ClickEvent event, int userAgentId, ByteBuffer out) {
+        out.put(VERSION);
+        out.putLong(event.timestamp());
+        writeString(event.shortCode(), out);
+        out.put((byte) IpAddresses.packedLength(event.ipAddress()));
+        IpAddresses.writePacked(event.ipAddress(), out);
+        writeVarint(userAgentId, out);
+    }
+
+    // Exactly sized array, for transports that need one value per event
+    public static byte[] encode(ClickEvent event, int userAgentId) {
+        byte[] bytes = new byte[encodedSize(event, userAgentId)];
+        encode(event, userAgentId, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Reads one event from the buffer's position.
+     *
+     * @param userAgents resolves user agent ids back to strings (e.g. UserAgentDictionary::userAgent)
+     * @throws IllegalArgumentException if the payload has an unknown version or is truncated
+     */
+    public static ClickEvent decode(ByteBuffer in, IntFunction<String> userAgents) {
+        try {
+            byte version = in.get();
+            if (version != VERSION && version != VERSION_1) {
+                throw new IllegalArgumentException("Unsupported click event version " + version);
+            }
+            long timestamp = in.getLong();
+            String shortCode = readString(in);
+            if (version == VERSION_1) {
+                String ipAddress = readString(in);
+                String userAgent = readString(in);
+                return new ClickEvent(shortCode, ipAddress, userAgent, timestamp);
+            }
+            String ipAddress = IpAddresses.readPacked(in, in.get());
+            int userAgentId = readVarint(in);
+            return new ClickEvent(shortCode, ipAddress, userAgentId == 0 ? null : userAgents.apply(userAgentId), timestamp);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated click event", e);
+        }
+    }
+
+    public static ClickEvent decode(byte[] bytes, IntFunction<String> userAgents) {
+        return decode(ByteBuffer.wrap(bytes), userAgents);
+    }
+
+    // Payloads written before this codec existed are JSON objects
+    public static boolean isLegacyJson(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == '{';
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int length = utf8Length(value);
+        return varintSize(length + 1) + length;
+    }
+
+    private static void writeString(String value, ByteBuffer out) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        writeVarint(utf8Length(value) + 1, out);
+
+        // Same output as getBytes(UTF_8), without the intermediate array
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    out.put((byte) (0xF0 | (codePoint >> 18)));
+                    out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    out.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    // Unpaired surrogate, replaced like the JDK encoder does
+                    out.put((byte) '?');
+                }
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 1;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int lengthPlusOne = readVarint(in);
+        if (lengthPlusOne == 0) {
+            return null;
+        }
+        int length = lengthPlusOne - 1;
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("Truncated click event");
+        }
+
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarint(int value, ByteBuffer out) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in click event");
+    }
+}
@@ -0,0 +1,111 @@
+package com.shortener.backendapi.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packs textual IP addresses into their 4 or 16 raw bytes and back.
+ * IPv4, the common case, is parsed by hand without allocating. IPv6 goes through InetAddress,
+ * which treats anything containing ':' as a literal and never does a DNS lookup.
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    // 4, 16, or 0 if the value is not an IP literal
+    public static int packedLength(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return 0;
+        }
+        if (ipv4(ip) >= 0) {
+            return 4;
+        }
+        return ipv6(ip) != null ? 16 : 0;
+    }
+
+    /**
+     * Writes the address's raw bytes ({@link #packedLength} of them) at the buffer's position.
+     */
+    public static void writePacked(String ip, ByteBuffer out) {
+        if (ip == null || ip.isEmpty()) {
+            return;
+        }
+        long v4 = ipv4(ip);
+        if (v4 >= 0) {
+            out.putInt((int) v4);
+            return;
+        }
+        byte[] v6 = ipv6(ip);
+        if (v6 != null) {
+            out.put(v6);
+        }
+    }
+
+    // Reads length raw bytes (0, 4 or 16) back into text
+    public static String readPacked(ByteBuffer in, int length) {
+        if (length == 0) {
+            return null;
+        }
+        if (length == 4) {
+            int v4 = in.getInt();
+            return (v4 >>> 24) + "." + ((v4 >>> 16) & 0xFF) + "." + ((v4 >>> 8) & 0xFF) + "." + (v4 & 0xFF);
+        }
+        if (length != 16) {
+            throw new IllegalArgumentException("Invalid packed IP length " + length);
+        }
+        byte[] v6 = new byte[16];
+        in.get(v6);
+        try {
+            return InetAddress.getByAddress(v6).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    // The address as a 32-bit value, or -1 if it is not a dotted-quad IPv4 literal
+    private static long ipv4(String ip) {
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || ++octets > 4) {
+                    return -1;
+                }
+                address = (address << 8) | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? address : -1;
+    }
+
+    private static byte[] ipv6(String ip) {
+        if (ip.indexOf(':') < 0) {
+            return null;
+        }
+        try {
+            byte[] address = InetAddress.getByName(ip).getAddress();
+            // IPv4-mapped literals (::ffff:a.b.c.d) come back as 4 bytes
+            if (address.length == 4) {
+                byte[] mapped = new byte[16];
+                mapped[10] = (byte) 0xFF;
+                mapped[11] = (byte) 0xFF;
+                System.arraycopy(address, 0, mapped, 12, 4);
+                return mapped;
+            }
+            return address;
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
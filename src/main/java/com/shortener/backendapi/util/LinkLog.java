@@ -0,0 +1,144 @@
+package com.shortener.backendapi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of newly issued links that are not in Postgres yet.
+ *
+ * Frame: payload length (int), CRC32 of the payload (int), then the payload:
+ *   id (long) | createdAt (long) | has user (byte) [ | userId (long) ] | URL length (int) | URL as UTF-8
+ * A crash can leave the last frame incomplete; {@link #read} stops at the first frame that is
+ * truncated or fails its checksum. A write that fails without a crash is cut off again, so later
+ * groups never land behind a torn frame. Appends are only durable after {@link #sync}, so callers
+ * write a whole group of entries and sync once.
+ */
+public final class LinkLog implements Closeable {
+
+    private static final int FRAME_HEADER = 8;
+
+    public record Entry(long id, String longUrl, long createdAt, Long userId) {
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    // Package-private so tests can hand in a channel that fails
+    LinkLog(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    public static LinkLog open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new LinkLog(path, channel);
+    }
+
+    public void append(List<Entry> entries) throws IOException {
+        buffer.clear();
+        CRC32 crc = new CRC32();
+        for (Entry entry : entries) {
+            byte[] url = entry.longUrl().getBytes(StandardCharsets.UTF_8);
+            int payloadLength = 8 + 8 + 1 + (entry.userId() != null ? 8 : 0) + 4 + url.length;
+            ensureCapacity(FRAME_HEADER + payloadLength);
+
+            int frameStart = buffer.position();
+            buffer.position(frameStart + FRAME_HEADER);
+            buffer.putLong(entry.id()).putLong(entry.createdAt());
+            if (entry.userId() != null) {
+                buffer.put((byte) 1).putLong(entry.userId());
+            } else {
+                buffer.put((byte) 0);
+            }
+            buffer.putInt(url.length).put(url);
+
+            crc.reset();
+            crc.update(buffer.array(), frameStart + FRAME_HEADER, payloadLength);
+            buffer.putInt(frameStart, payloadLength).putInt(frameStart + 4, (int) crc.getValue());
+        }
+
+        // A group is all or nothing: on failure, drop whatever part of it reached the file
+        long groupStart = channel.position();
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(groupStart);
+                channel.position(groupStart);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+    }
+
+    // Makes every append so far durable; one fsync covers the whole group
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return every complete entry, in append order, up to the first torn or corrupt frame
+     */
+    public static List<Entry> read(Path path) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<Entry> entries = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= FRAME_HEADER) {
+            int payloadLength = in.getInt();
+            int checksum = in.getInt();
+            if (payloadLength < 21 || payloadLength > in.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(in.array(), in.position(), payloadLength);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            long id = in.getLong();
+            long createdAt = in.getLong();
+            Long userId = in.get() == 1 ? in.getLong() : null;
+            byte[] url = new byte[in.getInt()];
+            in.get(url);
+            entries.add(new Entry(id, new String(url, StandardCharsets.UTF_8), createdAt, userId));
+        }
+        return entries;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
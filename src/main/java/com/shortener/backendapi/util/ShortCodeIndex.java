@@ -0,0 +1,248 @@
+package com.shortener.backendapi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Immutable, memory-mapped map from Snowflake IDs to long URLs: one segment of the local index.
+ *
+ * Layout (big-endian):
+ *   header  magic (int), version (int), count (int), reserved (int), coveredUntil (long), idsOffset (long)
+ *   data    the URLs as UTF-8, back to back
+ *   ids     count longs, ascending
+ *   ends    count ints, the end of each URL relative to the start of data
+ *
+ * Lookups binary-search the mapped ids and copy out a single URL, so the entries live in the page
+ * cache rather than on the heap. A segment is capped at 2 GB (one mapping); larger indexes are
+ * made of several segments.
+ */
+public final class ShortCodeIndex {
+
+    private static final int MAGIC = 0x4C4B4958; // "LKIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    public static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int count;
+    private final long coveredUntil;
+    private final int idsOffset;
+    private final int endsOffset;
+    private final long minId;
+    private final long maxId;
+
+    private ShortCodeIndex(Path path, ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a short code index: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported short code index version " + buffer.getInt(4) + ": " + path);
+        }
+        this.path = path;
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.coveredUntil = buffer.getLong(16);
+        this.idsOffset = (int) buffer.getLong(24);
+        this.endsOffset = idsOffset + count * Long.BYTES;
+        if ((long) endsOffset + (long) count * Integer.BYTES != buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated short code index: " + path);
+        }
+        this.minId = count == 0 ? Long.MAX_VALUE : idAt(0);
+        this.maxId = count == 0 ? Long.MIN_VALUE : idAt(count - 1);
+    }
+
+    public static ShortCodeIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_SEGMENT_BYTES) {
+                throw new IllegalArgumentException("Short code index segment larger than 2 GB: " + path);
+            }
+            // The mapping stays valid after the channel is closed (and after the file is deleted)
+            return new ShortCodeIndex(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * @return the long URL stored for the id, or {@code null} if this segment doesn't have it
+     */
+    public String get(long id) {
+        if (id < minId || id > maxId) {
+            return null;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return urlAt(mid);
+            }
+        }
+        return null;
+    }
+
+    public long idAt(int index) {
+        return buffer.getLong(idsOffset + index * Long.BYTES);
+    }
+
+    public String urlAt(int index) {
+        int start = index == 0 ? 0 : buffer.getInt(endsOffset + (index - 1) * Integer.BYTES);
+        int end = buffer.getInt(endsOffset + index * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(HEADER_SIZE + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Every row created before this time (epoch millis) was visible when the segment was written
+    public long coveredUntil() {
+        return coveredUntil;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public static Writer writer(Path path) throws IOException {
+        return new Writer(path, MAX_SEGMENT_BYTES);
+    }
+
+    public static Writer writer(Path path, long maxBytes) throws IOException {
+        return new Writer(path, Math.min(maxBytes, MAX_SEGMENT_BYTES));
+    }
+
+    /**
+     * Writes a segment sequentially: entries must be added in ascending id order. The URLs go
+     * straight to the file; only the ids and end offsets (12 bytes per entry) are held until finish.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final long maxBytes;
+        private final ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+
+        private long[] ids = new long[1024];
+        private int[] ends = new int[1024];
+        private int count;
+        private int dataLength;
+        private boolean finished;
+
+        private Writer(Path path, long maxBytes) throws IOException {
+            this.maxBytes = maxBytes;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            channel.position(HEADER_SIZE);
+        }
+
+        /**
+         * @return false if the segment has no room left for the entry, which was then not added
+         */
+        public boolean add(long id, String longUrl) throws IOException {
+            if (count > 0 && id <= ids[count - 1]) {
+                throw new IllegalArgumentException("Ids must be added in ascending order: " + id + " after " + ids[count - 1]);
+            }
+            byte[] bytes = longUrl.getBytes(StandardCharsets.UTF_8);
+            long sizeAfter = HEADER_SIZE + (long) dataLength + bytes.length + (count + 1L) * (Long.BYTES + Integer.BYTES);
+            if (sizeAfter > maxBytes) {
+                return false;
+            }
+
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            write(bytes);
+            dataLength += bytes.length;
+            ids[count] = id;
+            ends[count] = dataLength;
+            count++;
+            return true;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Writes the id table and header, and forces everything to disk.
+         */
+        public void finish(long coveredUntil) throws IOException {
+            for (int i = 0; i < count; i++) {
+                ensureRoom(Long.BYTES);
+                out.putLong(ids[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                ensureRoom(Integer.BYTES);
+                out.putInt(ends[i]);
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(count)
+                    .putInt(0)
+                    .putLong(coveredUntil)
+                    .putLong(HEADER_SIZE + (long) dataLength)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            finished = true;
+            channel.close();
+        }
+
+        // Abandons an unfinished segment; the caller deletes the file
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+            }
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!out.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(out.remaining(), bytes.length - offset);
+                out.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void ensureRoom(int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+}
@@ -1,40 +1,146 @@
 package com.shortener.backendapi.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free Twitter Snowflake ID generation.
+ *
+ * Layout: 1 unused sign bit | 41 bits millis since 2021-01-01 | 10 bits worker ID | 12 bits sequence.
+ *
+ * The last issued (timestamp, sequence) pair lives in a single AtomicLong and is advanced with CAS.
+ * When the wall clock is behind the last issued timestamp (clock regression, or more than 4096 IDs
+ * in one millisecond) the generator keeps counting on its own logical clock: incrementing the packed
+ * state carries a full sequence into the next millisecond. IDs therefore stay unique and increasing
+ * without ever blocking or throwing.
+ */
 @Component
 public class SnowflakeIdGenerator {
-    // A simple implementation of Twitter Snowflake ID generation
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
 
-    public synchronized long nextId() {
-        long timestamp = System.currentTimeMillis();
+    private static final Logger log = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+    // Custom Epoch (Jan 1, 2021), shared with the IDs issued before worker bits existed
+    private static final long EPOCH = 1609459200000L;
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+    private final LongSupplier clock;
+
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last issued ID
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${linklet.snowflake.worker-id:${WORKER_ID:-1}}") long workerId) {
+        this(workerId < 0 ? workerIdFromHostname() : workerId, System::currentTimeMillis);
+    }
 
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException("Clock moved backwards. Refusing to generate id");
+    SnowflakeIdGenerator(long workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker ID must be between 0 and " + MAX_WORKER_ID + ": " + workerId);
         }
+        this.workerId = workerId;
+        this.clock = clock;
+        log.info("Snowflake initialized with worker ID {}", workerId);
+    }
 
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & 4095;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH;
+        while (true) {
+            long last = state.get();
+            // A new millisecond restarts the sequence; otherwise count on from the last ID
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return compose(next);
             }
-        } else {
-            sequence = 0L;
         }
+    }
 
-        lastTimestamp = timestamp;
+    /**
+     * Reserves {@code count} consecutive IDs with a single CAS, for batch shortening.
+     * A reservation larger than one millisecond's sequence space borrows the following milliseconds.
+     */
+    public long[] nextIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+
+        long now = clock.getAsLong() - EPOCH;
+        long first;
+        while (true) {
+            long last = state.get();
+            first = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, first + count - 1)) {
+                break;
+            }
+        }
 
-        // Generate a simplified 64-bit ID
-        return ((timestamp - 1609459200000L) << 12) | sequence;
+        for (int i = 0; i < count; i++) {
+            ids[i] = compose(first + i);
+        }
+        return ids;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    // Wall-clock millis an ID was issued at (approximate for IDs issued on a logical clock that ran ahead)
+    public static long timestampOf(long id) {
+        return (id >>> (WORKER_ID_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    // Smallest ID any worker can issue at or after the given wall-clock millis
+    public static long firstIdAt(long timestampMillis) {
+        return Math.max(timestampMillis - EPOCH, 0) << (WORKER_ID_BITS + SEQUENCE_BITS);
     }
 
-    private long tilNextMillis(long lastTimestamp) {
-        long timestamp = System.currentTimeMillis();
-        while (timestamp <= lastTimestamp) {
-            timestamp = System.currentTimeMillis();
+    private long compose(long packed) {
+        long timestamp = packed >>> SEQUENCE_BITS;
+        long sequence = packed & MAX_SEQUENCE;
+        return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Derives a stable worker ID when none is configured: the trailing ordinal of the host name
+     * (e.g. "linklet-3" in a StatefulSet), otherwise a hash of the host name.
+     * Configure linklet.snowflake.worker-id (or WORKER_ID) explicitly when hashes could collide.
+     */
+    static long workerIdFromHostname() {
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname == null || hostname.isBlank()) {
+            try {
+                hostname = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                hostname = "localhost";
+            }
         }
-        return timestamp;
+
+        int end = hostname.length();
+        int start = end;
+        while (start > 0 && Character.isDigit(hostname.charAt(start - 1))) {
+            start--;
+        }
+        if (start < end && end - start <= 9) {
+            return Long.parseLong(hostname, start, end, 10) & MAX_WORKER_ID;
+        }
+
+        log.warn("No worker ID configured and host name '{}' has no ordinal; hashing it instead", hostname);
+        return Math.floorMod(hostname.hashCode(), MAX_WORKER_ID + 1);
     }
-}
\ No newline at end of file
+}
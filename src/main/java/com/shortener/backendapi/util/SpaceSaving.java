@@ -0,0 +1,144 @@
+package com.shortener.backendapi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters summary (Metwally et al.): tracks at most {@code capacity} keys,
+ * however many distinct keys are offered.
+ *
+ * When a new key arrives and the summary is full, it replaces the key with the smallest count
+ * and inherits that count as its error. Any key whose true count exceeds total / capacity is
+ * guaranteed to be present, and each reported count overestimates the true one by at most its
+ * error. Entries sit in a min-heap indexed by position, so every offer is O(log capacity).
+ *
+ * Not thread-safe.
+ */
+public final class SpaceSaving {
+
+    public record Item(String key, long count, long error) {
+    }
+
+    private static final class Entry {
+        String key;
+        long count;
+        long error;
+        int heapIndex;
+    }
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private final Entry[] heap;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = new Entry[capacity];
+    }
+
+    public void offer(String key) {
+        offer(key, 1);
+    }
+
+    public void offer(String key, long weight) {
+        total += weight;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count += weight;
+            siftDown(entry.heapIndex);
+            return;
+        }
+
+        if (size < capacity) {
+            entry = new Entry();
+            entry.key = key;
+            entry.count = weight;
+            entry.heapIndex = size;
+            heap[size++] = entry;
+            entries.put(key, entry);
+            siftUp(entry.heapIndex);
+            return;
+        }
+
+        // Evict the smallest counter and hand it to the new key
+        Entry min = heap[0];
+        entries.remove(min.key);
+        min.key = key;
+        min.error = min.count;
+        min.count += weight;
+        entries.put(key, min);
+        siftDown(0);
+    }
+
+    // Up to limit items, highest count first
+    public List<Item> top(int limit) {
+        Entry[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, Comparator.comparingLong((Entry e) -> e.count).reversed());
+        List<Item> items = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < sorted.length && i < limit; i++) {
+            items.add(new Item(sorted[i].key, sorted[i].count, sorted[i].error));
+        }
+        return items;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Sum of all weights offered, tracked or not
+    public long total() {
+        return total;
+    }
+
+    public void clear() {
+        entries.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        total = 0;
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= entry.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (entry.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(Entry entry, int index) {
+        heap[index] = entry;
+        entry.heapIndex = index;
+    }
+}
@@ -0,0 +1,95 @@
+package com.shortener.backendapi.util;
+
+import com.shortener.backendapi.model.UserAgentInfo;
+
+import java.util.Locale;
+
+/**
+ * Coarse browser / OS / device classification of User-Agent headers.
+ * Only run once per distinct user agent (see UserAgentDictionary), so plain substring checks
+ * are fast enough. Order matters: most browsers also claim to be Safari and Mozilla.
+ */
+public final class UserAgentParser {
+
+    public static final String UNKNOWN = "Unknown";
+    public static final String OTHER = "Other";
+
+    private UserAgentParser() {
+    }
+
+    public static UserAgentInfo parse(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return new UserAgentInfo(userAgent, UNKNOWN, UNKNOWN, UNKNOWN);
+        }
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        return new UserAgentInfo(userAgent, browser(ua), os(ua), deviceClass(ua));
+    }
+
+    private static String browser(String ua) {
+        if (isBot(ua)) {
+            return "Bot";
+        }
+        if (ua.contains("edg/") || ua.contains("edga/") || ua.contains("edgios/")) {
+            return "Edge";
+        }
+        if (ua.contains("opr/") || ua.contains("opera")) {
+            return "Opera";
+        }
+        if (ua.contains("samsungbrowser/")) {
+            return "Samsung Internet";
+        }
+        if (ua.contains("firefox/") || ua.contains("fxios/")) {
+            return "Firefox";
+        }
+        if (ua.contains("chrome/") || ua.contains("crios/") || ua.contains("chromium/")) {
+            return "Chrome";
+        }
+        if (ua.contains("safari/") && ua.contains("version/")) {
+            return "Safari";
+        }
+        return OTHER;
+    }
+
+    private static String os(String ua) {
+        if (ua.contains("windows")) {
+            return "Windows";
+        }
+        // Before Linux: Android user agents contain both
+        if (ua.contains("android")) {
+            return "Android";
+        }
+        // Before macOS: iOS user agents say "like Mac OS X"
+        if (ua.contains("iphone") || ua.contains("ipad") || ua.contains("ipod")) {
+            return "iOS";
+        }
+        if (ua.contains("mac os x") || ua.contains("macintosh")) {
+            return "macOS";
+        }
+        if (ua.contains("cros")) {
+            return "ChromeOS";
+        }
+        if (ua.contains("linux")) {
+            return "Linux";
+        }
+        return OTHER;
+    }
+
+    private static String deviceClass(String ua) {
+        if (isBot(ua)) {
+            return "Bot";
+        }
+        if (ua.contains("ipad") || ua.contains("tablet") || (ua.contains("android") && !ua.contains("mobile"))) {
+            return "Tablet";
+        }
+        if (ua.contains("mobi") || ua.contains("iphone") || ua.contains("ipod")) {
+            return "Mobile";
+        }
+        return "Desktop";
+    }
+
+    private static boolean isBot(String ua) {
+        return ua.contains("bot") || ua.contains("crawler") || ua.contains("spider") || ua.contains("slurp")
+                || ua.startsWith("curl/") || ua.startsWith("wget/") || ua.startsWith("python-")
+                || ua.startsWith("java/") || ua.startsWith("go-http-client") || ua.contains("headless");
+    }
+}
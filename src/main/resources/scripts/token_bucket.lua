@@ -0,0 +1,32 @@
+-- Token bucket shared by all replicas: refills, then grants up to ARGV[3] tokens in one atomic step.
+-- KEYS[1] = bucket hash, ARGV[1] = capacity, ARGV[2] = refill per second, ARGV[3] = tokens requested,
+-- ARGV[4] = fewest tokens worth granting (the request being served).
+-- Returns the number of tokens granted (0, with the bucket untouched, when fewer than ARGV[4] are left).
+local capacity = tonumber(ARGV[1])
+local refill_per_ms = tonumber(ARGV[2]) / 1000
+local requested = tonumber(ARGV[3])
+local minimum = tonumber(ARGV[4])
+
+-- Server time, so app nodes with skewed clocks agree
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1])
+local ts = tonumber(bucket[2])
+if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+end
+
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * refill_per_ms)
+local granted = math.min(requested, math.floor(tokens))
+if granted < minimum then
+    granted = 0
+end
+tokens = tokens - granted
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+-- An idle bucket is full again after capacity / rate; drop it then
+redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / refill_per_ms) + 1000)
+return granted
@@ -0,0 +1,17 @@
+-- Returns the dictionary id of a user agent, assigning the next one if it is new.
+-- KEYS[1] = ua -> id hash, KEYS[2] = id -> ua hash, KEYS[3] = id sequence
+-- ARGV[1] = user agent, ARGV[2] = maximum dictionary size
+-- Returns 0 once the dictionary is full, so junk user agents cannot grow it without bound.
+local id = redis.call('HGET', KEYS[1], ARGV[1])
+if id then
+    return tonumber(id)
+end
+
+if tonumber(redis.call('GET', KEYS[3]) or '0') >= tonumber(ARGV[2]) then
+    return 0
+end
+
+id = redis.call('INCR', KEYS[3])
+redis.call('HSET', KEYS[1], ARGV[1], id)
+redis.call('HSET', KEYS[2], id, ARGV[1])
+return id
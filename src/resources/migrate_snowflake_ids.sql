@@ -0,0 +1,29 @@
+-- backend-api/src/resources/migrate_snowflake_ids.sql
+-- Makes urls.id the Snowflake ID that short_code encodes, for rows created while id was an IDENTITY column.
+-- Safe to re-run. Afterwards set linklet.urls.legacy-short-code-lookup=false.
+
+CREATE OR REPLACE FUNCTION linklet_base62_decode(code TEXT) RETURNS BIGINT AS $$
+DECLARE
+    alphabet CONSTANT TEXT := '0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz';
+    result NUMERIC := 0;
+BEGIN
+    FOR i IN 1..length(code) LOOP
+        result := result * 62 + (strpos(alphabet, substr(code, i, 1)) - 1);
+    END LOOP;
+    RETURN result::BIGINT;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE STRICT;
+
+BEGIN;
+
+-- IDENTITY values are small and Snowflake IDs are not, so the rewritten ids cannot collide with pending ones
+UPDATE urls
+SET id = linklet_base62_decode(short_code)
+WHERE id <> linklet_base62_decode(short_code);
+
+-- The application assigns ids itself now
+ALTER TABLE urls ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+COMMIT;
+
+DROP FUNCTION linklet_base62_decode(TEXT);
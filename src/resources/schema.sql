@@ -1,9 +1,11 @@
 -- backend-api/src/main/resources/schema.sql
 CREATE TABLE IF NOT EXISTS urls (
-    id BIGINT PRIMARY KEY,
-    short_code VARCHAR(10) NOT NULL UNIQUE,
+    id BIGINT PRIMARY KEY, -- Snowflake ID, short_code is its Base62 encoding
+    short_code VARCHAR(16) NOT NULL UNIQUE,
     long_url TEXT NOT NULL,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    user_id BIGINT
 );
 
-CREATE INDEX IF NOT EXISTS idx_short_code ON urls(short_code);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_short_code ON urls(short_code);
+CREATE INDEX IF NOT EXISTS idx_urls_user_created ON urls(user_id, created_at, id);
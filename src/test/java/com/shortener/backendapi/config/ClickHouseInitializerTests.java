@@ -0,0 +1,110 @@
+package com.shortener.backendapi.config;
+
+import com.shortener.backendapi.service.ClickRollupService;
+import com.shortener.backendapi.service.ClickStatsService.ClickBucket;
+import com.shortener.backendapi.service.ClickStatsService.Granularity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Needs a real ClickHouse: CLICKHOUSE_TEST_URL=jdbc:clickhouse://localhost:8123/scratch
+// The database must be a scratch one, the tests drop the tables they create.
+@EnabledIfEnvironmentVariable(named = "CLICKHOUSE_TEST_URL", matches = ".+")
+class ClickHouseInitializerTests {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+    private static final long T0 = 1_700_000_000_000L / DAY * DAY;
+    private static final List<String> TABLES = List.of("clicks_by_minute_mv", "clicks_by_hour_mv", "clicks_by_day_mv",
+            "clicks_by_minute", "clicks_by_hour", "clicks_by_day", "clicks", "user_agents");
+
+    private ClickHouseConnectionPool pool;
+    private ClickHouseInitializer initializer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ClickHouseConnectionPool(System.getenv("CLICKHOUSE_TEST_URL"), 1);
+        dropTables();
+        initializer = new ClickHouseInitializer();
+        ReflectionTestUtils.setField(initializer, "connectionPool", pool);
+        ReflectionTestUtils.setField(initializer, "enabled", true);
+        // Long enough that the fixed test timestamps are not already expired
+        ReflectionTestUtils.setField(initializer, "rawRetentionDays", 36_500);
+        ReflectionTestUtils.setField(initializer, "minuteRetentionDays", 36_500);
+        ReflectionTestUtils.setField(initializer, "hourRetentionDays", 36_500);
+        ReflectionTestUtils.setField(initializer, "dayRetentionDays", 36_500);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        dropTables();
+        pool.close();
+    }
+
+    @Test
+    void createsEveryTableAndView() throws SQLException {
+        initializer.onApplicationReady();
+
+        for (String table : TABLES) {
+            try (Connection conn = pool.getConnection(); Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("EXISTS TABLE " + table)) {
+                rs.next();
+                assertEquals(1, rs.getInt(1), table);
+            }
+        }
+    }
+
+    @Test
+    void rollsInsertedClicksUpPerGranularity() throws SQLException {
+        initializer.onApplicationReady();
+        // Same statement shape as ClickHouseSink
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO clicks (short_code, ip, ua_id, timestamp) VALUES (?, ?, ?, ?)")) {
+            for (long at : new long[]{T0 + 1_000, T0 + 2_000, T0 + HOUR + 5, T0 + DAY + 5}) {
+                ps.setString(1, "abc");
+                ps.setString(2, "::ffff:192.0.2.1");
+                ps.setLong(3, 1);
+                ps.setTimestamp(4, new Timestamp(at));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        ClickRollupService rollups = new ClickRollupService(pool);
+        assertEquals(List.of(new ClickBucket(T0, 2), new ClickBucket(T0 + 60_000, 0)),
+                rollups.buckets("abc", Granularity.MINUTE, T0, T0 + 120_000));
+        assertEquals(List.of(new ClickBucket(T0, 2), new ClickBucket(T0 + HOUR, 1)),
+                rollups.buckets("abc", Granularity.HOUR, T0, T0 + 2 * HOUR));
+        assertEquals(List.of(new ClickBucket(T0, 3), new ClickBucket(T0 + DAY, 1)),
+                rollups.buckets("abc", Granularity.DAY, T0, T0 + 2 * DAY));
+    }
+
+    @Test
+    void canRunAgainOverAnExistingSchema() throws SQLException {
+        initializer.onApplicationReady();
+        ReflectionTestUtils.setField(initializer, "initialized", false);
+        initializer.onApplicationReady();
+
+        assertEquals(true, ReflectionTestUtils.getField(initializer, "initialized"));
+    }
+
+    private void dropTables() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement statement = conn.createStatement()) {
+            for (String table : TABLES) {
+                statement.execute("DROP TABLE IF EXISTS " + table);
+            }
+        }
+    }
+}
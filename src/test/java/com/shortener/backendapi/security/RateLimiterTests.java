@@ -0,0 +1,141 @@
+package com.shortener.backendapi.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Redis is a template that runs token_bucket.lua's arithmetic in Java, on a clock the test moves
+class RateLimiterTests {
+
+    private final BucketRedisTemplate redis = new BucketRedisTemplate();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rateLimiter, "redisTemplate", redis);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(rateLimiter, "leaseFraction", 0.1);
+    }
+
+    @Test
+    void servesMostRequestsFromTheLocalLease() {
+        RateLimiter.Limit limit = new RateLimiter.Limit("test", 100, 1);
+
+        for (int i = 0; i < 30; i++) {
+            assertTrue(rateLimiter.tryAcquire("client", limit));
+        }
+
+        // Leases of 10 tokens: one Redis call per 10 requests
+        assertEquals(3, redis.calls);
+        assertEquals(70, redis.tokens.get("client"), 1e-9);
+        assertEquals(3, meterRegistry.get("linklet.rate-limit.redis.calls").counter().count());
+    }
+
+    @Test
+    void throttlesAnEmptyBucketUntilItRefills() {
+        RateLimiter.Limit limit = new RateLimiter.Limit("test", 10, 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("client", limit));
+        }
+        assertFalse(rateLimiter.tryAcquire("client", limit));
+        // Other keys have buckets of their own
+        assertTrue(rateLimiter.tryAcquire("other", limit));
+
+        redis.nowMillis += 500;
+        assertTrue(rateLimiter.tryAcquire("client", limit));
+        assertFalse(rateLimiter.tryAcquire("client", limit));
+
+        // Refills stop at capacity
+        redis.nowMillis += 60_000;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("client", limit));
+        }
+        assertFalse(rateLimiter.tryAcquire("client", limit));
+    }
+
+    @Test
+    void takesAllOfARequestsTokensOrNone() {
+        RateLimiter.Limit limit = new RateLimiter.Limit("test", 100, 1);
+
+        assertTrue(rateLimiter.tryAcquire("client", limit, 60));
+        // Only 40 left: refused without taking any of them
+        assertFalse(rateLimiter.tryAcquire("client", limit, 60));
+        assertEquals(2, redis.calls);
+        assertEquals(40, redis.tokens.get("client"), 1e-9);
+        assertTrue(rateLimiter.tryAcquire("client", limit, 40));
+        assertEquals(0, redis.tokens.get("client"), 1e-9);
+    }
+
+    @Test
+    void refusesMoreTokensThanTheBucketHolds() {
+        RateLimiter.Limit limit = new RateLimiter.Limit("test", 100, 1);
+
+        assertFalse(rateLimiter.tryAcquire("client", limit, 101));
+        assertEquals(0, redis.calls);
+    }
+
+    @Test
+    void allowsEveryRequestWhileRedisIsDown() {
+        RateLimiter.Limit limit = new RateLimiter.Limit("test", 10, 1);
+        redis.down = true;
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(rateLimiter.tryAcquire("client", limit));
+        }
+
+        // Back up: limited again, starting from a full bucket
+        redis.down = false;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("client", limit));
+        }
+        assertFalse(rateLimiter.tryAcquire("client", limit));
+    }
+
+    private static final class BucketRedisTemplate extends StringRedisTemplate {
+
+        final Map<String, Double> tokens = new HashMap<>();
+        final Map<String, Long> updatedAt = new HashMap<>();
+        long nowMillis = 1_000_000;
+        int calls;
+        boolean down;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            if (down) {
+                throw new RedisConnectionFailureException("Redis is down");
+            }
+            calls++;
+            String key = keys.get(0);
+            int capacity = Integer.parseInt((String) args[0]);
+            double refillPerMs = Double.parseDouble((String) args[1]) / 1000;
+            int requested = Integer.parseInt((String) args[2]);
+            int minimum = Integer.parseInt((String) args[3]);
+
+            double available = tokens.getOrDefault(key, (double) capacity);
+            long elapsed = nowMillis - updatedAt.getOrDefault(key, nowMillis);
+            available = Math.min(capacity, available + Math.max(0, elapsed) * refillPerMs);
+            long granted = Math.min(requested, (long) Math.floor(available));
+            if (granted < minimum) {
+                granted = 0;
+            }
+            tokens.put(key, available - granted);
+            updatedAt.put(key, nowMillis);
+            return (T) Long.valueOf(granted);
+        }
+    }
+}
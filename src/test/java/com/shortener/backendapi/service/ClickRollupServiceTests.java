@@ -0,0 +1,85 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.config.ClickHouseConnectionPool;
+import com.shortener.backendapi.service.ClickStatsService.ClickBucket;
+import com.shortener.backendapi.service.ClickStatsService.Granularity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// H2 stands in for ClickHouse: the rollup tables as they look before SummingMergeTree merges
+class ClickRollupServiceTests {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long T0 = 1_700_000_000_000L / HOUR * HOUR;
+
+    private ClickHouseConnectionPool pool;
+    private ClickRollupService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ClickHouseConnectionPool("jdbc:h2:mem:rollups;DB_CLOSE_DELAY=-1", 1);
+        service = new ClickRollupService(pool);
+        try (Connection conn = pool.getConnection(); Statement ddl = conn.createStatement()) {
+            ddl.execute("CREATE TABLE clicks_by_hour (short_code VARCHAR(16), bucket TIMESTAMP, clicks BIGINT)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement ddl = conn.createStatement()) {
+            ddl.execute("DROP TABLE clicks_by_hour");
+        }
+        pool.close();
+    }
+
+    @Test
+    void sumsUnmergedRowsAndFillsGaps() throws SQLException {
+        insert("abc", T0, 3);
+        insert("abc", T0, 4);
+        insert("abc", T0 + 2 * HOUR, 5);
+        insert("other", T0 + HOUR, 100);
+
+        List<ClickBucket> buckets = service.buckets("abc", Granularity.HOUR, T0 + 10, T0 + 3 * HOUR);
+
+        assertEquals(List.of(
+                new ClickBucket(T0, 7),
+                new ClickBucket(T0 + HOUR, 0),
+                new ClickBucket(T0 + 2 * HOUR, 5)), buckets);
+    }
+
+    @Test
+    void excludesTheBucketAtTheEndOfTheRange() throws SQLException {
+        insert("abc", T0, 1);
+        insert("abc", T0 + HOUR, 1);
+
+        assertEquals(List.of(new ClickBucket(T0, 1)), service.buckets("abc", Granularity.HOUR, T0, T0 + HOUR));
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedRanges() {
+        assertThrows(IllegalArgumentException.class, () -> service.buckets("abc", Granularity.HOUR, T0, T0));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.buckets("abc", Granularity.HOUR, T0, T0 + (ClickRollupService.MAX_BUCKETS + 1) * HOUR));
+    }
+
+    private void insert(String shortCode, long bucket, long clicks) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO clicks_by_hour VALUES (?, ?, ?)")) {
+            ps.setString(1, shortCode);
+            ps.setTimestamp(2, new Timestamp(bucket));
+            ps.setLong(3, clicks);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.util.Base62;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Postgres is a JdbcTemplate over an empty urls table that can be taken down; Redis has no snapshot
+class ShortCodeFilterTests {
+
+    private final EmptyJdbcTemplate jdbcTemplate = new EmptyJdbcTemplate();
+    private final UrlWriteBehind urlWriteBehind = mock(UrlWriteBehind.class);
+
+    @Test
+    void retriesTheFirstBuildOnRefresh() {
+        ShortCodeFilter filter = new ShortCodeFilter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(filter, "redisTemplate", mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(filter, "urlWriteBehind", urlWriteBehind);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(filter, "minimumCapacity", 1000L);
+        when(urlWriteBehind.visibleUntil()).thenAnswer(invocation -> System.currentTimeMillis());
+        String neverIssued = Base62.encode(SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+
+        // Postgres is down at startup: no filter, every code is looked up
+        jdbcTemplate.down = true;
+        ReflectionTestUtils.invokeMethod(filter, "initialize");
+        assertFalse(filter.definitelyMissing(neverIssued));
+
+        jdbcTemplate.down = false;
+        filter.refresh();
+        assertTrue(filter.definitelyMissing(neverIssued));
+    }
+
+    private static final class EmptyJdbcTemplate extends JdbcTemplate {
+
+        volatile boolean down;
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            checkUp();
+            return requiredType.cast(0L);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            checkUp();
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            checkUp();
+        }
+
+        private void checkUp() {
+            if (down) {
+                throw new DataAccessResourceFailureException("Postgres is down");
+            }
+        }
+    }
+}
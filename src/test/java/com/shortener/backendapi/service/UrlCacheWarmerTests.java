@@ -0,0 +1,52 @@
+package com.shortener.backendapi.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UrlCacheWarmerTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshotsLinksOfAnyLength() {
+        // Over writeUTF's 65,535 byte limit, and not all ASCII
+        String longUrl = "https://example.com/?q=" + "ü".repeat(40_000);
+        List<String> hotSet = List.of("abc", "def", "gone");
+
+        HotLinksTracker hotLinksTracker = mock(HotLinksTracker.class);
+        when(hotLinksTracker.hotSet()).thenReturn(hotSet);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.multiGet(hotSet)).thenReturn(Arrays.asList("https://example.com/a", longUrl, null));
+
+        UrlCacheWarmer warmer = warmer(redisTemplate, hotLinksTracker);
+        warmer.writeSnapshot();
+
+        assertEquals(Map.of("abc", "https://example.com/a", "def", longUrl),
+                ReflectionTestUtils.invokeMethod(warmer, "readSnapshot"));
+    }
+
+    private UrlCacheWarmer warmer(StringRedisTemplate redisTemplate, HotLinksTracker hotLinksTracker) {
+        UrlCacheWarmer warmer = new UrlCacheWarmer();
+        ReflectionTestUtils.setField(warmer, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(warmer, "hotLinksTracker", hotLinksTracker);
+        ReflectionTestUtils.setField(warmer, "enabled", true);
+        ReflectionTestUtils.setField(warmer, "snapshotPath", directory.resolve("hot-set.bin"));
+        return warmer;
+    }
+}
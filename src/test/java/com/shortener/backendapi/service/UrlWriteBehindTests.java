@@ -0,0 +1,267 @@
+package com.shortener.backendapi.service;
+
+import com.shortener.backendapi.model.Url;
+import com.shortener.backendapi.repository.UrlBatchRepository;
+import com.shortener.backendapi.util.LinkLog;
+import com.shortener.backendapi.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Real log files in a temp directory; Postgres is a JdbcTemplate that records (or refuses) batches
+class UrlWriteBehindTests {
+
+    @TempDir
+    Path directory;
+
+    private final FakeJdbcTemplate jdbcTemplate = new FakeJdbcTemplate();
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final List<UrlWriteBehind> started = new ArrayList<>();
+    private HashOperations<String, Object, Object> pendingSince;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        pendingSince = mock(HashOperations.class);
+        when(redisTemplate.opsForHash()).thenReturn(pendingSince);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        jdbcTemplate.open();
+        for (UrlWriteBehind writeBehind : started) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void groupsConcurrentAppendsIntoOneFsync() throws Exception {
+        UrlWriteBehind writeBehind = writeBehind(64 * 1024 * 1024);
+
+        // Queue 50 appends before the log thread runs, so they are all waiting for the same fsync
+        List<Thread> clients = new ArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Url url = url(i);
+            clients.add(Thread.ofVirtual().start(() -> {
+                try {
+                    writeBehind.append(url);
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        BlockingQueue<?> appends = (BlockingQueue<?>) ReflectionTestUtils.getField(writeBehind, "appends");
+        await(() -> appends.size() == 50);
+
+        start(writeBehind);
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(1, meterRegistry.get("linklet.shorten.write-behind.sync").timer().count());
+        assertEquals(50, LinkLog.read(directory.resolve("links-000000000000.log")).size());
+        await(() -> jdbcTemplate.inserted.size() == 50);
+    }
+
+    @Test
+    void replaysAcknowledgedLinksAfterRestart() throws Exception {
+        jdbcTemplate.failing = true;
+        UrlWriteBehind first = writeBehind(64 * 1024 * 1024);
+        start(first);
+        for (int i = 0; i < 3; i++) {
+            first.append(url(i));
+        }
+        first.stop();
+        assertEquals(List.of(), jdbcTemplate.inserted);
+
+        // Postgres is back; a new instance finds the log the first one left behind
+        jdbcTemplate.failing = false;
+        UrlWriteBehind second = writeBehind(64 * 1024 * 1024);
+        start(second);
+
+        await(() -> jdbcTemplate.inserted.size() == 3);
+        assertEquals(List.of(1000L, 1001L, 1002L), jdbcTemplate.inserted.stream().map(Url::getId).toList());
+        assertTrue(jdbcTemplate.sql.endsWith("ON CONFLICT (id) DO NOTHING"));
+        verify(redisTemplate).executePipelined(any(RedisCallback.class));
+        await(() -> logFiles().equals(List.of("links-000000000001.log")));
+    }
+
+    @Test
+    void deletesRolledLogsOnceTheirRowsAreInserted() throws Exception {
+        jdbcTemplate.close();
+        // Every group fills a file, so each link ends up in a log of its own
+        UrlWriteBehind writeBehind = writeBehind(1);
+        start(writeBehind);
+        for (int i = 0; i < 3; i++) {
+            writeBehind.append(url(i));
+        }
+        await(() -> logFiles().size() == 4);
+
+        jdbcTemplate.open();
+
+        await(() -> jdbcTemplate.inserted.size() == 3);
+        await(() -> logFiles().equals(List.of("links-000000000003.log")));
+    }
+
+    @Test
+    void ignoresPendingSinceOfReplicasThatStoppedHeartbeating() {
+        UrlWriteBehind writeBehind = writeBehind(64 * 1024 * 1024);
+        long now = System.currentTimeMillis();
+        when(pendingSince.values("shorten:write-behind:pending-since")).thenReturn(List.of(
+                "2000:" + now,
+                "1000:" + (now - TimeUnit.MINUTES.toMillis(10)),
+                "500"));
+
+        assertEquals(2000, writeBehind.visibleUntil());
+    }
+
+    @Test
+    void keepsTheLastPendingSinceWhileRedisIsDown() {
+        UrlWriteBehind writeBehind = writeBehind(64 * 1024 * 1024);
+        when(pendingSince.values("shorten:write-behind:pending-since"))
+                .thenReturn(List.of("2000:" + System.currentTimeMillis()))
+                .thenThrow(new RedisConnectionFailureException("Redis is down"));
+
+        assertEquals(2000, writeBehind.visibleUntil());
+        assertEquals(2000, writeBehind.visibleUntil());
+    }
+
+    @Test
+    void doesNotAskRedisWhenDisabled() {
+        UrlWriteBehind writeBehind = writeBehind(64 * 1024 * 1024);
+        ReflectionTestUtils.setField(writeBehind, "enabled", false);
+        long before = System.currentTimeMillis();
+
+        long visibleUntil = writeBehind.visibleUntil();
+
+        assertTrue(visibleUntil >= before && visibleUntil <= System.currentTimeMillis());
+        verifyNoInteractions(pendingSince);
+    }
+
+    private UrlWriteBehind writeBehind(long maxLogBytes) {
+        UrlBatchRepository repository = new UrlBatchRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(repository, "jdbcBatchSize", 1000);
+
+        meterRegistry = new SimpleMeterRegistry();
+        UrlWriteBehind writeBehind = new UrlWriteBehind();
+        ReflectionTestUtils.setField(writeBehind, "urlBatchRepository", repository);
+        ReflectionTestUtils.setField(writeBehind, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(writeBehind, "snowflakeIdGenerator", new SnowflakeIdGenerator(1));
+        ReflectionTestUtils.setField(writeBehind, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(writeBehind, "enabled", true);
+        ReflectionTestUtils.setField(writeBehind, "directory", directory);
+        ReflectionTestUtils.setField(writeBehind, "maxLogBytes", maxLogBytes);
+        ReflectionTestUtils.setField(writeBehind, "maxPending", 1000);
+        ReflectionTestUtils.setField(writeBehind, "appendTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(writeBehind, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(writeBehind, "retryBackoffMs", 10L);
+        ReflectionTestUtils.setField(writeBehind, "pendingStaleAfterMs", 300_000L);
+        ReflectionTestUtils.setField(writeBehind, "insertBatchSize", 1000);
+        ReflectionTestUtils.setField(writeBehind, "ttlHours", 24L);
+        return writeBehind;
+    }
+
+    private void start(UrlWriteBehind writeBehind) throws IOException {
+        writeBehind.start();
+        started.add(writeBehind);
+    }
+
+    private static Url url(int i) {
+        Url url = new Url();
+        url.setId(1000L + i);
+        url.setLongUrl("https://example.com/" + i);
+        url.setCreatedDate(new Timestamp(System.currentTimeMillis()));
+        return url;
+    }
+
+    private List<String> logFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within 10s");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class FakeJdbcTemplate extends JdbcTemplate {
+
+        final List<Url> inserted = new CopyOnWriteArrayList<>();
+        volatile String sql;
+        volatile boolean failing;
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        // Holds every batch until open()
+        void close() {
+            gate = new CountDownLatch(1);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new DataAccessResourceFailureException("Postgres is down");
+            }
+            this.sql = sql;
+            batchArgs.forEach(url -> inserted.add((Url) url));
+            return new int[0][];
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.shortener.backendapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Base62Tests {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void roundTripsRandomIds() {
+        SplittableRandom random = new SplittableRandom(62);
+        for (int i = 0; i < SAMPLES; i++) {
+            // Mix full-range values with small ones so every code length is covered
+            long id = i % 2 == 0 ? random.nextLong(Long.MAX_VALUE) : random.nextLong(1L << random.nextInt(1, 63));
+            assertEquals(id, Base62.decode(Base62.encode(id)), () -> "id " + id);
+        }
+    }
+
+    @Test
+    void roundTripsBoundaries() {
+        for (long id : new long[]{0, 1, 61, 62, 63, 3843, 3844, Long.MAX_VALUE - 1, Long.MAX_VALUE}) {
+            assertEquals(id, Base62.decode(Base62.encode(id)));
+        }
+        assertEquals("0", Base62.encode(0));
+        assertEquals("10", Base62.encode(62));
+        assertEquals("AzL8n0Y58m7", Base62.encode(Long.MAX_VALUE));
+    }
+
+    @Test
+    void matchesTheCodesIssuedBeforeTheCodecExisted() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            long id = random.nextLong(1, Long.MAX_VALUE);
+            assertEquals(legacyEncode(id), Base62.encode(id));
+        }
+    }
+
+    @Test
+    void rejectsInvalidCodes() {
+        assertEquals(-1, Base62.decode(""));
+        assertEquals(-1, Base62.decode("abc-def"));
+        assertEquals(-1, Base62.decode("é"));
+        assertEquals(-1, Base62.decode("AzL8n0Y58m8")); // Long.MAX_VALUE + 1
+        assertEquals(-1, Base62.decode("zzzzzzzzzzz"));
+        assertEquals(-1, Base62.decode("000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> Base62.encode(-1));
+    }
+
+    // The StringBuilder encoder UrlService used before
+    private static String legacyEncode(long id) {
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        StringBuilder sb = new StringBuilder();
+        while (id > 0) {
+            sb.append(alphabet.charAt((int) (id % 62)));
+            id /= 62;
+        }
+        return sb.reverse().toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.shortener.backendapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+    private static final int INSERTIONS = 100_000;
+
+    @Test
+    void neverMissesAKeyThatWasPut() throws InterruptedException {
+        BloomFilter filter = BloomFilter.create(INSERTIONS, 0.01);
+
+        // Concurrent puts that share words must not lose each other's bits
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = first; i < INSERTIONS; i += 4) {
+                    filter.put(shortCode(i));
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(filter.mightContain(shortCode(i)), shortCode(i));
+        }
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheTargetWhenFull() {
+        for (double target : new double[]{0.01, 0.001}) {
+            BloomFilter filter = BloomFilter.create(INSERTIONS, target);
+            for (int i = 0; i < INSERTIONS; i++) {
+                filter.put(shortCode(i));
+            }
+
+            int falsePositives = 0;
+            int probes = 1_000_000;
+            for (int i = INSERTIONS; i < INSERTIONS + probes; i++) {
+                if (filter.mightContain(shortCode(i))) {
+                    falsePositives++;
+                }
+            }
+
+            double rate = (double) falsePositives / probes;
+            assertTrue(rate > target / 2 && rate < target * 1.5, "target " + target + ", measured " + rate);
+        }
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        BloomFilter filter = BloomFilter.create(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i += 2) {
+            filter.put(shortCode(i));
+        }
+
+        byte[] bytes = filter.toByteArray();
+        BloomFilter copy = BloomFilter.fromByteArray(bytes);
+
+        assertEquals(filter.bitCount(), copy.bitCount());
+        assertArrayEquals(bytes, copy.toByteArray());
+        for (int i = 0; i < 2 * INSERTIONS; i++) {
+            assertEquals(filter.mightContain(shortCode(i)), copy.mightContain(shortCode(i)), shortCode(i));
+        }
+    }
+
+    @Test
+    void rejectsBytesThatAreNotAFilter() {
+        byte[] bytes = BloomFilter.create(1000, 0.01).toByteArray();
+
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.fromByteArray(Arrays.copyOf(bytes, bytes.length - 8)));
+        bytes[11] = 0;
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.fromByteArray(bytes));
+    }
+
+    // Snowflake-sized ids, Base62 encoded, like the short codes the filter holds
+    private static String shortCode(int i) {
+        return Base62.encode(1_800_000_000_000_000_000L + i * 4_194_304L);
+    }
+}
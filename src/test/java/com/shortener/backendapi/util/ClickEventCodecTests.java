@@ -0,0 +1,96 @@
+package com.shortener.backendapi.util;
+
+import com.shortener.backendapi.model.ClickEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickEventCodecTests {
+
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36";
+
+    // Stand-in for UserAgentDictionary::userAgent
+    private static final IntFunction<String> USER_AGENTS = Map.of(7, USER_AGENT, 300, "curl/8.0")::get;
+
+    @Test
+    void roundTripsTypicalEvent() {
+        ClickEvent event = new ClickEvent("2dK9x7LmQ1a", "203.0.113.42", USER_AGENT, 1_718_000_000_123L);
+        byte[] bytes = ClickEventCodec.encode(event, 7);
+
+        assertEquals(ClickEventCodec.encodedSize(event, 7), bytes.length);
+        // version + timestamp + 12 byte code + 5 byte IP + 1 byte id
+        assertEquals(1 + 8 + 12 + 5 + 1, bytes.length);
+        assertEquals(event, ClickEventCodec.decode(bytes, USER_AGENTS));
+    }
+
+    @Test
+    void packsIpv6AndKeepsMissingFields() {
+        ClickEvent event = new ClickEvent("abc", "2001:db8:0:0:0:0:0:42", "curl/8.0", -1L);
+        byte[] bytes = ClickEventCodec.encode(event, 300);
+        assertEquals(event, ClickEventCodec.decode(bytes, USER_AGENTS));
+
+        ClickEvent anonymous = new ClickEvent("abc", null, null, 0L);
+        assertEquals(anonymous, ClickEventCodec.decode(ClickEventCodec.encode(anonymous, 0), USER_AGENTS));
+
+        // Values that are not IP literals are dropped rather than stored as text
+        ClickEvent junk = new ClickEvent("abc", "not-an-ip", null, 0L);
+        assertEquals(anonymous, ClickEventCodec.decode(ClickEventCodec.encode(junk, 0), USER_AGENTS));
+    }
+
+    @Test
+    void encodesBackToBackIntoOneBuffer() {
+        ClickEvent first = new ClickEvent("a", "10.0.0.1", USER_AGENT, 1L);
+        ClickEvent second = new ClickEvent("b\u00e9\u6f22\uD83D\uDE80", "10.0.0.2", null, 2L);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        ClickEventCodec.encode(first, 7, buffer);
+        ClickEventCodec.encode(second, 0, buffer);
+
+        buffer.flip();
+        assertEquals(first, ClickEventCodec.decode(buffer, USER_AGENTS));
+        assertEquals(second, ClickEventCodec.decode(buffer, USER_AGENTS));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void readsVersionOnePayloads() {
+        byte[] ip = "10.0.0.1".getBytes(StandardCharsets.UTF_8);
+        byte[] userAgent = USER_AGENT.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer v1 = ByteBuffer.allocate(64 + userAgent.length);
+        v1.put((byte) 1).putLong(42L);
+        v1.put((byte) 4).put("abc".getBytes(StandardCharsets.UTF_8));
+        v1.put((byte) (ip.length + 1)).put(ip);
+        // Two-byte varint: the user agent is longer than 127 bytes
+        int length = userAgent.length + 1;
+        v1.put((byte) ((length & 0x7F) | 0x80)).put((byte) (length >>> 7)).put(userAgent);
+        v1.flip();
+
+        assertEquals(new ClickEvent("abc", "10.0.0.1", USER_AGENT, 42L), ClickEventCodec.decode(v1, USER_AGENTS));
+    }
+
+    @Test
+    void rejectsUnknownVersionsAndTruncatedPayloads() {
+        byte[] bytes = ClickEventCodec.encode(new ClickEvent("abc", "10.0.0.1", USER_AGENT, 1L), 7);
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> ClickEventCodec.decode(truncated, USER_AGENTS));
+
+        bytes[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> ClickEventCodec.decode(bytes, USER_AGENTS));
+    }
+
+    @Test
+    void recognisesLegacyJson() {
+        assertTrue(ClickEventCodec.isLegacyJson("{\"shortCode\":\"abc\"}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(ClickEventCodec.isLegacyJson(ClickEventCodec.encode(new ClickEvent("abc", null, null, 1L), 0)));
+    }
+}
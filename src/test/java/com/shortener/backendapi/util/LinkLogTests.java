@@ -0,0 +1,252 @@
+package com.shortener.backendapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LinkLogTests {
+
+    @Test
+    void readsBackWhatWasAppended() throws IOException {
+        Path file = Files.createTempFile("link-log", ".log");
+        try {
+            List<LinkLog.Entry> first = List.of(
+                    new LinkLog.Entry(1, "https://example.com/a", 1_700_000_000_000L, 42L),
+                    new LinkLog.Entry(2, "https://example.com/caf\u00e9", 1_700_000_000_001L, null));
+            List<LinkLog.Entry> second = List.of(new LinkLog.Entry(3, "", 1_700_000_000_002L, null));
+            try (LinkLog log = LinkLog.open(file)) {
+                log.append(first);
+                log.append(second);
+                log.sync();
+            }
+
+            List<LinkLog.Entry> expected = new ArrayList<>(first);
+            expected.addAll(second);
+            assertEquals(expected, LinkLog.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void appendsAfterReopening() throws IOException {
+        Path file = Files.createTempFile("link-log", ".log");
+        try {
+            try (LinkLog log = LinkLog.open(file)) {
+                log.append(List.of(new LinkLog.Entry(1, "https://example.com/a", 1, null)));
+            }
+            try (LinkLog log = LinkLog.open(file)) {
+                log.append(List.of(new LinkLog.Entry(2, "https://example.com/b", 2, null)));
+            }
+
+            assertEquals(List.of(
+                    new LinkLog.Entry(1, "https://example.com/a", 1, null),
+                    new LinkLog.Entry(2, "https://example.com/b", 2, null)), LinkLog.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void growsTheBufferForLargeGroups() throws IOException {
+        Path file = Files.createTempFile("link-log", ".log");
+        try {
+            List<LinkLog.Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                entries.add(new LinkLog.Entry(i, "https://example.com/articles/" + "x".repeat(i % 100), i, (long) i));
+            }
+            try (LinkLog log = LinkLog.open(file)) {
+                log.append(entries);
+            }
+
+            assertEquals(entries, LinkLog.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void stopsAtATornLastFrame() throws IOException {
+        Path file = Files.createTempFile("link-log", ".log");
+        try {
+            try (LinkLog log = LinkLog.open(file)) {
+                log.append(List.of(
+                        new LinkLog.Entry(1, "https://example.com/a", 1, null),
+                        new LinkLog.Entry(2, "https://example.com/b", 2, null)));
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(raf.length() - 3);
+            }
+
+            assertEquals(List.of(new LinkLog.Entry(1, "https://example.com/a", 1, null)), LinkLog.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void stopsAtACorruptFrame() throws IOException {
+        Path file = Files.createTempFile("link-log", ".log");
+        try {
+            try (LinkLog log = LinkLog.open(file)) {
+                log.append(List.of(
+                        new LinkLog.Entry(1, "https://example.com/a", 1, null),
+                        new LinkLog.Entry(2, "https://example.com/b", 2, null)));
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(raf.length() - 1);
+                raf.write('x');
+            }
+
+            assertEquals(List.of(new LinkLog.Entry(1, "https://example.com/a", 1, null)), LinkLog.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void dropsAFailedGroupSoLaterAppendsStayReadable() throws IOException {
+        Path file = Files.createTempFile("link-log", ".log");
+        try {
+            FailingChannel channel = new FailingChannel(FileChannel.open(file, StandardOpenOption.WRITE));
+            try (LinkLog log = new LinkLog(file, channel)) {
+                log.append(List.of(new LinkLog.Entry(1, "https://example.com/a", 1, null)));
+
+                // Half of the group reaches the file, then the write fails
+                channel.failAfter = 30;
+                assertThrows(IOException.class, () -> log.append(List.of(
+                        new LinkLog.Entry(2, "https://example.com/b", 2, null),
+                        new LinkLog.Entry(3, "https://example.com/c", 3, null))));
+
+                channel.failAfter = Integer.MAX_VALUE;
+                log.append(List.of(new LinkLog.Entry(4, "https://example.com/d", 4, 7L)));
+            }
+
+            assertEquals(List.of(
+                    new LinkLog.Entry(1, "https://example.com/a", 1, null),
+                    new LinkLog.Entry(4, "https://example.com/d", 4, 7L)), LinkLog.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Writes at most failAfter more bytes, then throws, like a disk that fills up mid-write
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        int failAfter = Integer.MAX_VALUE;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failAfter <= 0) {
+                throw new IOException("No space left on device");
+            }
+            ByteBuffer part = src.slice().limit(Math.min(src.remaining(), failAfter));
+            int written = delegate.write(part);
+            src.position(src.position() + written);
+            failAfter -= written;
+            return written;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
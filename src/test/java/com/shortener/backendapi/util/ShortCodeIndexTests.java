@@ -0,0 +1,120 @@
+package com.shortener.backendapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShortCodeIndexTests {
+
+    @Test
+    void findsEveryEntryWritten() throws IOException {
+        Path file = Files.createTempFile("short-code-index", ".idx");
+        try {
+            try (ShortCodeIndex.Writer writer = ShortCodeIndex.writer(file)) {
+                for (int i = 0; i < 10_000; i++) {
+                    assertTrue(writer.add(i * 3L + 1, "https://example.com/" + i));
+                }
+                writer.finish(1_700_000_000_000L);
+            }
+
+            ShortCodeIndex index = ShortCodeIndex.open(file);
+            assertEquals(10_000, index.size());
+            assertEquals(1_700_000_000_000L, index.coveredUntil());
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("https://example.com/" + i, index.get(i * 3L + 1));
+            }
+            assertNull(index.get(0));
+            assertNull(index.get(2));
+            assertNull(index.get(Long.MAX_VALUE));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void keepsNonAsciiUrlsIntact() throws IOException {
+        Path file = Files.createTempFile("short-code-index", ".idx");
+        try {
+            String url = "https://example.com/caf\u00e9/\u65e5\u672c";
+            try (ShortCodeIndex.Writer writer = ShortCodeIndex.writer(file)) {
+                writer.add(7, url);
+                writer.add(8, "");
+                writer.finish(0);
+            }
+
+            ShortCodeIndex index = ShortCodeIndex.open(file);
+            assertEquals(url, index.get(7));
+            assertEquals("", index.get(8));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void opensAnEmptySegment() throws IOException {
+        Path file = Files.createTempFile("short-code-index", ".idx");
+        try {
+            try (ShortCodeIndex.Writer writer = ShortCodeIndex.writer(file)) {
+                writer.finish(42);
+            }
+
+            ShortCodeIndex index = ShortCodeIndex.open(file);
+            assertEquals(0, index.size());
+            assertNull(index.get(1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void refusesEntriesOnceTheSegmentIsFull() throws IOException {
+        Path file = Files.createTempFile("short-code-index", ".idx");
+        try {
+            // Header (32) + two entries of 10 bytes of URL and 12 bytes of id/end each
+            try (ShortCodeIndex.Writer writer = ShortCodeIndex.writer(file, 32 + 2 * 22)) {
+                assertTrue(writer.add(1, "0123456789"));
+                assertTrue(writer.add(2, "0123456789"));
+                assertFalse(writer.add(3, "0123456789"));
+                writer.finish(0);
+            }
+
+            ShortCodeIndex index = ShortCodeIndex.open(file);
+            assertEquals(2, index.size());
+            assertEquals(32 + 2 * 22, index.sizeInBytes());
+            assertNull(index.get(3));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void rejectsIdsOutOfOrder() throws IOException {
+        Path file = Files.createTempFile("short-code-index", ".idx");
+        try (ShortCodeIndex.Writer writer = ShortCodeIndex.writer(file)) {
+            writer.add(5, "https://example.com/a");
+            assertThrows(IllegalArgumentException.class, () -> writer.add(5, "https://example.com/b"));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(4, "https://example.com/c"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAnIndex() throws IOException {
+        Path file = Files.createTempFile("short-code-index", ".idx");
+        try {
+            Files.write(file, new byte[64]);
+            assertThrows(IllegalArgumentException.class, () -> ShortCodeIndex.open(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.shortener.backendapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTests {
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, System::currentTimeMillis);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 50_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    void clockRegressionKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        long before = generator.nextId();
+        clock.addAndGet(-10_000);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+    }
+
+    @Test
+    void workerIdIsEmbedded() {
+        SnowflakeIdGenerator a = new SnowflakeIdGenerator(1, () -> 1_700_000_000_000L);
+        SnowflakeIdGenerator b = new SnowflakeIdGenerator(2, () -> 1_700_000_000_000L);
+
+        // Same millisecond and sequence on two workers must still differ
+        assertTrue(a.nextId() != b.nextId());
+        assertEquals(2, (b.nextId() >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID);
+    }
+
+    @Test
+    void bulkReservationSpillsIntoFollowingMilliseconds() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, () -> 1_700_000_000_000L);
+
+        long[] ids = generator.nextIds(10_000);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+        assertTrue(generator.nextId() > ids[ids.length - 1]);
+    }
+}
@@ -0,0 +1,67 @@
+package com.shortener.backendapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTests {
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.offer("a", 5);
+        summary.offer("b");
+        summary.offer("a");
+        summary.offer("c", 3);
+
+        assertEquals(List.of(
+                new SpaceSaving.Item("a", 6, 0),
+                new SpaceSaving.Item("c", 3, 0),
+                new SpaceSaving.Item("b", 1, 0)), summary.top(10));
+        assertEquals(List.of(new SpaceSaving.Item("a", 6, 0)), summary.top(1));
+        assertEquals(10, summary.total());
+    }
+
+    @Test
+    void findsHeavyHittersInBoundedSpace() {
+        SpaceSaving summary = new SpaceSaving(100);
+        Map<String, Long> exact = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(20);
+
+        // 20% of the traffic goes to 5 hot keys, the rest is spread over 100k cold ones
+        for (int i = 0; i < 500_000; i++) {
+            String key = random.nextInt(5) == 0 ? "hot" + random.nextInt(5) : "cold" + random.nextInt(100_000);
+            summary.offer(key);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        assertEquals(100, summary.size());
+        List<SpaceSaving.Item> top = summary.top(5);
+        for (SpaceSaving.Item item : top) {
+            assertTrue(item.key().startsWith("hot"), item.key());
+            long trueCount = exact.get(item.key());
+            // Overestimates by at most the recorded error
+            assertTrue(item.count() >= trueCount && item.count() - item.error() <= trueCount, item.toString());
+        }
+    }
+
+    @Test
+    void clearsAndRejectsZeroCapacity() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.offer("a");
+        summary.offer("b");
+        summary.offer("c");
+        summary.clear();
+        assertEquals(0, summary.size());
+        assertEquals(List.of(), summary.top(5));
+
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}
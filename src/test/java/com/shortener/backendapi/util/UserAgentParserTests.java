@@ -0,0 +1,46 @@
+package com.shortener.backendapi.util;
+
+import com.shortener.backendapi.model.UserAgentInfo;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserAgentParserTests {
+
+    private static void assertParsed(String userAgent, String browser, String os, String deviceClass) {
+        UserAgentInfo info = UserAgentParser.parse(userAgent);
+        assertEquals(new UserAgentInfo(userAgent, browser, os, deviceClass), info);
+    }
+
+    @Test
+    void classifiesCommonBrowsers() {
+        assertParsed("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                + "Chrome/124.0.0.0 Safari/537.36", "Chrome", "Windows", "Desktop");
+        assertParsed("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                + "Chrome/124.0.0.0 Safari/537.36 Edg/124.0.2478.51", "Edge", "Windows", "Desktop");
+        assertParsed("Mozilla/5.0 (Macintosh; Intel Mac OS X 14_4) AppleWebKit/605.1.15 (KHTML, like Gecko) "
+                + "Version/17.4 Safari/605.1.15", "Safari", "macOS", "Desktop");
+        assertParsed("Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0",
+                "Firefox", "Linux", "Desktop");
+    }
+
+    @Test
+    void classifiesMobileAndTabletDevices() {
+        assertParsed("Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 "
+                + "(KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1", "Safari", "iOS", "Mobile");
+        assertParsed("Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) "
+                + "Chrome/124.0.0.0 Mobile Safari/537.36", "Chrome", "Android", "Mobile");
+        assertParsed("Mozilla/5.0 (Linux; Android 13; SM-X710) AppleWebKit/537.36 (KHTML, like Gecko) "
+                + "SamsungBrowser/24.0 Chrome/115.0.0.0 Safari/537.36", "Samsung Internet", "Android", "Tablet");
+        assertParsed("Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) "
+                + "CriOS/124.0.6367.88 Mobile/15E148 Safari/604.1", "Chrome", "iOS", "Tablet");
+    }
+
+    @Test
+    void classifiesBotsAndMissingHeaders() {
+        assertParsed("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)", "Bot", "Other", "Bot");
+        assertParsed("curl/8.4.0", "Bot", "Other", "Bot");
+        assertParsed(null, "Unknown", "Unknown", "Unknown");
+        assertParsed("", "Unknown", "Unknown", "Unknown");
+    }
+}